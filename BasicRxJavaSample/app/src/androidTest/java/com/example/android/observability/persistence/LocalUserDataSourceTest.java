@@ -16,6 +16,10 @@
 
 package com.example.android.observability.persistence;
 
+import static org.junit.Assert.assertEquals;
+
+import android.database.Cursor;
+
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.room.Room;
 import androidx.test.core.app.ApplicationProvider;
@@ -25,6 +29,12 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.subscribers.TestSubscriber;
+
 /**
  * Integration tests for the {@link LocalUserDataSource} implementation with Room.
  */
@@ -47,7 +57,7 @@ public class LocalUserDataSourceTest {
                 // allowing main thread queries, just for testing
                 .allowMainThreadQueries()
                 .build();
-        mDataSource = new LocalUserDataSource(mDatabase.userDao());
+        mDataSource = new LocalUserDataSource(mDatabase);
     }
 
     @After
@@ -104,4 +114,75 @@ public class LocalUserDataSourceTest {
                 // check that there's no user emitted
                 .assertNoValues();
     }
+
+    @Test
+    public void insertOrUpdateUsers() {
+        // When writing a stream of users, updating one of them
+        mDataSource.insertOrUpdateUsers(Flowable.just(new User("1", "a"), new User("2", "b"),
+                new User("1", "c")))
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                // Every user is emitted once it was written
+                .assertValueCount(3)
+                .assertComplete();
+
+        // The last update of the user won
+        Cursor cursor = mDatabase.query("SELECT username FROM users ORDER BY userid", null);
+        try {
+            assertEquals(2, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals("c", cursor.getString(0));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void getUserById() {
+        // Given that we have users in the data source
+        mDataSource.insertOrUpdateUser(USER).blockingAwait();
+        mDataSource.insertOrUpdateUser(new User("other id", "other username")).blockingAwait();
+
+        // When getting a user by id, the user with this id is emitted
+        mDataSource.getUserById(USER.getId()).test().assertValue(USER);
+        // and nothing is emitted for an unknown id
+        mDataSource.getUserById("unknown id").test().assertNoValues().assertComplete();
+    }
+
+    @Test
+    public void getUsers_inPages() {
+        // Given that we have 5 users in the data source
+        for (int i = 1; i <= 5; i++) {
+            mDataSource.insertOrUpdateUser(new User(String.valueOf(i), "user" + i))
+                    .blockingAwait();
+        }
+
+        // When getting them 2 at a time, each page starts after the last user of the previous one
+        mDataSource.getUsers("", 2).test()
+                .assertValue(Arrays.asList(new User("1", "user1"), new User("2", "user2")));
+        mDataSource.getUsers("2", 2).test()
+                .assertValue(Arrays.asList(new User("3", "user3"), new User("4", "user4")));
+        mDataSource.getUsers("4", 2).test()
+                .assertValue(Arrays.asList(new User("5", "user5")));
+    }
+
+    @Test
+    public void observeUser_emitsChangesOfTheUserOnly() {
+        // Given that a user is observed twice
+        mDataSource.insertOrUpdateUser(new User("1", "a")).blockingAwait();
+        TestSubscriber<User> first = mDataSource.observeUser("1").test();
+        first.awaitCount(1);
+        TestSubscriber<User> second = mDataSource.observeUser("1").test();
+        second.awaitCount(1);
+
+        // When another user is written, then the observed one is updated
+        mDataSource.insertOrUpdateUser(new User("2", "b")).blockingAwait();
+        mDataSource.insertOrUpdateUser(new User("1", "c")).blockingAwait();
+
+        // Both observers get the user, then its update, once
+        first.awaitCount(2);
+        second.awaitCount(2);
+        first.assertValues(new User("1", "a"), new User("1", "c"));
+        second.assertValues(new User("1", "a"), new User("1", "c"));
+    }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Compares writing user updates one {@link UserDao#insertUser(User)} Completable at a time, the
+ * way {@code UserActivity} does, with the grouped writes of
+ * {@link LocalUserDataSource#insertOrUpdateUsers(Flowable)}.
+ *
+ * <p>The benchmarks report the time to write {@link #UPDATES} updates as fast as they come. The
+ * sustained tests send {@link #RATE_PER_SECOND} updates a second for
+ * {@link #SUSTAINED_SECONDS} seconds and log, under the {@code UserWriteBenchmark} tag, the
+ * rate at which they were written; below the rate they were sent at, writes fall behind.</p>
+ *
+ * <p>The individual Completables run on {@link Schedulers#io()}, at most
+ * {@link #MAX_CONCURRENT_WRITES} at once so the pool doesn't start a thread per update.</p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class UserWriteBenchmark {
+
+    private static final String TAG = "UserWriteBenchmark";
+
+    private static final String DATABASE_NAME = "user-write-benchmark-db";
+
+    private static final int UPDATES = 1_000;
+
+    /** The updates go to this many users, over and over. */
+    private static final int USERS = 1_000;
+
+    private static final int RATE_PER_SECOND = 10_000;
+
+    private static final int SUSTAINED_SECONDS = 3;
+
+    private static final int MAX_CONCURRENT_WRITES = 64;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private UsersDatabase mDatabase;
+
+    private LocalUserDataSource mDataSource;
+
+    private List<User> mUpdates;
+
+    @Before
+    public void setUp() {
+        mContext.deleteDatabase(DATABASE_NAME);
+        mDatabase = Room.databaseBuilder(mContext, UsersDatabase.class, DATABASE_NAME).build();
+        mDataSource = new LocalUserDataSource(mDatabase);
+        mUpdates = new ArrayList<>(UPDATES);
+        for (int i = 0; i < UPDATES; i++) {
+            mUpdates.add(new User("user" + i % USERS, "name" + i));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void individualCompletables() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            writeIndividually(Flowable.fromIterable(mUpdates)).blockingAwait();
+        }
+    }
+
+    @Test
+    public void batched() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mDataSource.insertOrUpdateUsers(Flowable.fromIterable(mUpdates))
+                    .ignoreElements()
+                    .blockingAwait();
+        }
+    }
+
+    @Test
+    public void sustainedIndividualCompletables() {
+        measureSustained("individual Completables", writeIndividually(sustainedUpdates()));
+    }
+
+    @Test
+    public void sustainedBatched() {
+        measureSustained("batched",
+                mDataSource.insertOrUpdateUsers(sustainedUpdates()).ignoreElements());
+    }
+
+    private Completable writeIndividually(Flowable<User> updates) {
+        UserDao userDao = mDatabase.userDao();
+        return updates.flatMapCompletable(
+                user -> userDao.insertUser(user).subscribeOn(Schedulers.io()),
+                false, MAX_CONCURRENT_WRITES);
+    }
+
+    /** {@link #RATE_PER_SECOND} updates a second, sent every millisecond. */
+    private Flowable<User> sustainedUpdates() {
+        final int perMillisecond = RATE_PER_SECOND / 1000;
+        return Flowable.interval(1, TimeUnit.MILLISECONDS)
+                .take(SUSTAINED_SECONDS * 1000)
+                .onBackpressureBuffer()
+                .concatMapIterable(tick -> {
+                    List<User> users = new ArrayList<>(perMillisecond);
+                    for (int i = 0; i < perMillisecond; i++) {
+                        long update = tick * perMillisecond + i;
+                        users.add(new User("user" + update % USERS, "name" + update));
+                    }
+                    return users;
+                });
+    }
+
+    private void measureSustained(String label, Completable writes) {
+        long start = SystemClock.elapsedRealtime();
+        writes.blockingAwait();
+        long durationMs = SystemClock.elapsedRealtime() - start;
+
+        int updates = RATE_PER_SECOND * SUSTAINED_SECONDS;
+        Log.i(TAG, String.format(Locale.US,
+                "%s: %d updates sent at %d/s written in %d ms, %d/s", label, updates,
+                RATE_PER_SECOND, durationMs, updates * 1000L / durationMs));
+        assertEquals(USERS, countUsers());
+    }
+
+    private int countUsers() {
+        Cursor cursor = mDatabase.query("SELECT COUNT(*) FROM users", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
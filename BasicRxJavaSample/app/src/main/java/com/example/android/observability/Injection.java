@@ -26,13 +26,38 @@ import com.example.android.observability.ui.ViewModelFactory;
  */
 public class Injection {
 
+    private static volatile SchedulerProvider sSchedulerProvider;
+
+    private static volatile UserDataSource sUserDataSource;
+
+    public static SchedulerProvider provideSchedulerProvider() {
+        if (sSchedulerProvider == null) {
+            synchronized (Injection.class) {
+                if (sSchedulerProvider == null) {
+                    sSchedulerProvider = new SchedulerProvider();
+                }
+            }
+        }
+        return sSchedulerProvider;
+    }
+
     public static UserDataSource provideUserDataSource(Context context) {
-        UsersDatabase database = UsersDatabase.getInstance(context);
-        return new LocalUserDataSource(database.userDao());
+        // One data source for the app, so that all writes are grouped together.
+        if (sUserDataSource == null) {
+            synchronized (Injection.class) {
+                if (sUserDataSource == null) {
+                    SchedulerProvider schedulers = provideSchedulerProvider();
+                    UsersDatabase database = UsersDatabase.getInstance(context,
+                            schedulers.getDatabaseExecutor());
+                    sUserDataSource = new LocalUserDataSource(database, schedulers.database());
+                }
+            }
+        }
+        return sUserDataSource;
     }
 
     public static ViewModelFactory provideViewModelFactory(Context context) {
         UserDataSource dataSource = provideUserDataSource(context);
-        return new ViewModelFactory(dataSource);
+        return new ViewModelFactory(dataSource, provideSchedulerProvider());
     }
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on a fixed number of threads, queueing the tasks that arrive while they are all
+ * busy, and keeps track of how long tasks wait and how many threads are busy.
+ */
+public class MeteredExecutor implements Executor {
+
+    private final String mName;
+
+    private final int mThreadCount;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final AtomicInteger mQueuedTasks = new AtomicInteger();
+
+    private final AtomicInteger mActiveWorkers = new AtomicInteger();
+
+    private final AtomicInteger mPeakActiveWorkers = new AtomicInteger();
+
+    private final AtomicLong mStartedTasks = new AtomicLong();
+
+    private final AtomicLong mTotalQueueLatencyNanos = new AtomicLong();
+
+    private final AtomicLong mMaxQueueLatencyNanos = new AtomicLong();
+
+    public MeteredExecutor(final String name, int threadCount) {
+        mName = name;
+        mThreadCount = threadCount;
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable, name + "-" + mCount.incrementAndGet());
+                    }
+                });
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        final long queuedAt = System.nanoTime();
+        mQueuedTasks.incrementAndGet();
+        mExecutor.execute(() -> {
+            mQueuedTasks.decrementAndGet();
+            recordQueueLatency(System.nanoTime() - queuedAt);
+            updatePeak(mActiveWorkers.incrementAndGet());
+            try {
+                task.run();
+            } finally {
+                mActiveWorkers.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Stops the threads once the tasks already submitted have run.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the number of threads tasks run on, the most that can be busy at once.
+     */
+    public int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * @return the number of threads running a task right now.
+     */
+    public int getActiveWorkers() {
+        return mActiveWorkers.get();
+    }
+
+    /**
+     * @return the most threads that have been running a task at once.
+     */
+    public int getPeakActiveWorkers() {
+        return mPeakActiveWorkers.get();
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread right now.
+     */
+    public int getQueuedTasks() {
+        return mQueuedTasks.get();
+    }
+
+    /**
+     * @return the number of tasks that got a thread so far.
+     */
+    public long getStartedTasks() {
+        return mStartedTasks.get();
+    }
+
+    /**
+     * @return how long the tasks that got a thread waited for it on average, in nanoseconds.
+     */
+    public long getAverageQueueLatencyNanos() {
+        long started = mStartedTasks.get();
+        return started == 0 ? 0 : mTotalQueueLatencyNanos.get() / started;
+    }
+
+    /**
+     * @return the longest a task waited for a thread, in nanoseconds.
+     */
+    public long getMaxQueueLatencyNanos() {
+        return mMaxQueueLatencyNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%s: %d/%d workers active (peak %d), %d tasks queued, "
+                        + "%d started, queue latency %.2f ms average, %.2f ms max",
+                mName, getActiveWorkers(), mThreadCount, getPeakActiveWorkers(),
+                getQueuedTasks(), getStartedTasks(), getAverageQueueLatencyNanos() / 1e6,
+                getMaxQueueLatencyNanos() / 1e6);
+    }
+
+    private void recordQueueLatency(long latencyNanos) {
+        mTotalQueueLatencyNanos.addAndGet(latencyNanos);
+        mStartedTasks.incrementAndGet();
+        long max;
+        do {
+            max = mMaxQueueLatencyNanos.get();
+        } while (latencyNanos > max && !mMaxQueueLatencyNanos.compareAndSet(max, latencyNanos));
+    }
+
+    private void updatePeak(int active) {
+        int peak;
+        do {
+            peak = mPeakActiveWorkers.get();
+        } while (active > peak && !mPeakActiveWorkers.compareAndSet(peak, active));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability;
+
+import java.io.PrintWriter;
+
+import io.reactivex.Scheduler;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Provides the schedulers the app works on. Database and computation work each run on their own
+ * fixed number of threads, unlike {@link Schedulers#io()}, which starts a thread for every task
+ * that finds the others busy.
+ */
+public class SchedulerProvider {
+
+    /**
+     * SQLite runs one write at a time, and the reads alongside it rarely need more threads.
+     */
+    static final int DATABASE_THREADS = 4;
+
+    private final MeteredExecutor mDatabaseExecutor;
+
+    private final MeteredExecutor mComputationExecutor;
+
+    private final Scheduler mDatabase;
+
+    private final Scheduler mComputation;
+
+    public SchedulerProvider() {
+        this(DATABASE_THREADS, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SchedulerProvider(int databaseThreads, int computationThreads) {
+        mDatabaseExecutor = new MeteredExecutor("database", databaseThreads);
+        mComputationExecutor = new MeteredExecutor("computation", computationThreads);
+        mDatabase = Schedulers.from(mDatabaseExecutor);
+        mComputation = Schedulers.from(mComputationExecutor);
+    }
+
+    /**
+     * @return the scheduler for queries and writes.
+     */
+    public Scheduler database() {
+        return mDatabase;
+    }
+
+    /**
+     * @return the scheduler for CPU bound work and timers.
+     */
+    public Scheduler computation() {
+        return mComputation;
+    }
+
+    public Scheduler mainThread() {
+        return AndroidSchedulers.mainThread();
+    }
+
+    /**
+     * @return the executor behind {@link #database()}, which also runs Room's queries, and its
+     * metrics.
+     */
+    public MeteredExecutor getDatabaseExecutor() {
+        return mDatabaseExecutor;
+    }
+
+    /**
+     * @return the executor behind {@link #computation()}, and its metrics.
+     */
+    public MeteredExecutor getComputationExecutor() {
+        return mComputationExecutor;
+    }
+
+    /**
+     * Prints the metrics of both executors, one per line, each line starting with
+     * {@code prefix}.
+     */
+    public void dump(String prefix, PrintWriter writer) {
+        writer.print(prefix);
+        writer.println(mDatabaseExecutor);
+        writer.print(prefix);
+        writer.println(mComputationExecutor);
+    }
+}
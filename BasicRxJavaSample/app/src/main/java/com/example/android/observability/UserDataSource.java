@@ -18,8 +18,12 @@ package com.example.android.observability;
 
 import com.example.android.observability.persistence.User;
 
+import java.util.List;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
 
 /**
  * Access point for managing user data.
@@ -33,6 +37,34 @@ public interface UserDataSource {
      */
     Flowable<User> getUser();
 
+    /**
+     * Gets the user with the given id from the data source.
+     *
+     * @param id the id of the user.
+     * @return the user, or nothing if there is no user with this id.
+     */
+    Maybe<User> getUserById(String id);
+
+    /**
+     * Gets a page of users, ordered by id.
+     *
+     * @param afterId the id of the last user of the previous page, or an empty string for the
+     *                first page.
+     * @param limit   the number of users in the page.
+     * @return the users of the page. A page with fewer than {@code limit} users is the last one.
+     */
+    Single<List<User>> getUsers(String afterId, int limit);
+
+    /**
+     * Observes the user with the given id. All the observers of an id share its emissions, and
+     * a change to the users only queries the ids that are observed.
+     *
+     * @param id the id of the user.
+     * @return a {@link Flowable} that emits the user, then every time it has changed. Nothing
+     * is emitted while there is no user with this id.
+     */
+    Flowable<User> observeUser(String id);
+
     /**
      * Inserts the user into the data source, or, if this is an existing user, updates it.
      *
@@ -40,6 +72,15 @@ public interface UserDataSource {
      */
     Completable insertOrUpdateUser(User user);
 
+    /**
+     * Inserts or updates the users as they are emitted, grouping them into as few writes as
+     * possible. Only requests as many users as can wait to be written.
+     *
+     * @param users the users to be inserted or updated.
+     * @return a {@link Flowable} that emits each user once it was written.
+     */
+    Flowable<User> insertOrUpdateUsers(Flowable<User> users);
+
     /**
      * Deletes all users from the data source.
      */
@@ -18,18 +18,47 @@ package com.example.android.observability.persistence;
 
 import com.example.android.observability.UserDataSource;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * Using the Room database as a data source.
  */
 public class LocalUserDataSource implements UserDataSource {
 
+    /** How long users wait for others to be written with. */
+    static final long WRITE_WINDOW_MS = 10;
+
+    static final int MAX_WRITE_BATCH_SIZE = 500;
+
+    static final int MAX_PENDING_WRITES = 10_000;
+
     private final UserDao mUserDao;
 
-    public LocalUserDataSource(UserDao userDao) {
-        mUserDao = userDao;
+    private final UserWriteBuffer mWriteBuffer;
+
+    private final UserStore mUserStore;
+
+    public LocalUserDataSource(UsersDatabase database) {
+        // SQLite has one writer at a time, so one thread is enough to write the groups.
+        this(database, Schedulers.single());
+    }
+
+    /**
+     * @param scheduler where the groups of users are written, and the observed users queried.
+     */
+    public LocalUserDataSource(UsersDatabase database, Scheduler scheduler) {
+        mUserDao = database.userDao();
+        mWriteBuffer = new UserWriteBuffer(mUserDao, WRITE_WINDOW_MS, TimeUnit.MILLISECONDS,
+                MAX_WRITE_BATCH_SIZE, MAX_PENDING_WRITES, scheduler);
+        mUserStore = new UserStore(database, scheduler);
     }
 
     @Override
@@ -37,11 +66,31 @@ public class LocalUserDataSource implements UserDataSource {
         return mUserDao.getUser();
     }
 
+    @Override
+    public Maybe<User> getUserById(String id) {
+        return mUserDao.getUserById(id);
+    }
+
+    @Override
+    public Single<List<User>> getUsers(String afterId, int limit) {
+        return mUserDao.getUsers(afterId, limit);
+    }
+
+    @Override
+    public Flowable<User> observeUser(String id) {
+        return mUserStore.observe(id);
+    }
+
     @Override
     public Completable insertOrUpdateUser(User user) {
        return mUserDao.insertUser(user);
     }
 
+    @Override
+    public Flowable<User> insertOrUpdateUsers(Flowable<User> users) {
+        return mWriteBuffer.write(users);
+    }
+
     @Override
     public void deleteAllUsers() {
         mUserDao.deleteAllUsers();
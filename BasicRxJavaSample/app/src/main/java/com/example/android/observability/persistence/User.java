@@ -55,4 +55,22 @@ public class User {
     public String getUserName() {
         return mUserName;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        User user = (User) o;
+        return mId.equals(user.mId)
+                && (mUserName == null ? user.mUserName == null : mUserName.equals(user.mUserName));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mId.hashCode() + (mUserName == null ? 0 : mUserName.hashCode());
+    }
 }
@@ -20,8 +20,12 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import java.util.List;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
 
 /**
  * Data Access Object for the users table.
@@ -38,6 +42,38 @@ public interface UserDao {
     @Query("SELECT * FROM Users LIMIT 1")
     Flowable<User> getUser();
 
+    /**
+     * Get the user with the given id.
+     *
+     * @param id the id of the user.
+     * @return the user, or nothing if there is no user with this id.
+     */
+    @Query("SELECT * FROM users WHERE userid = :id")
+    Maybe<User> getUserById(String id);
+
+    /**
+     * Get the users with the given ids. SQLite limits the number of ids a query can take, to
+     * 999 by default.
+     *
+     * @param ids the ids of the users.
+     * @return the users that exist, in no particular order.
+     */
+    @Query("SELECT * FROM users WHERE userid IN (:ids)")
+    List<User> getUsersByIds(List<String> ids);
+
+    /**
+     * Get a page of users, ordered by id. The page starts after a given id rather than at an
+     * offset, so that SQLite finds it through the primary key instead of stepping over the
+     * users of the previous pages.
+     *
+     * @param afterId the id of the last user of the previous page, or an empty string for the
+     *                first page.
+     * @param limit   the number of users in the page.
+     * @return the users of the page.
+     */
+    @Query("SELECT * FROM users WHERE userid > :afterId ORDER BY userid LIMIT :limit")
+    Single<List<User>> getUsers(String afterId, int limit);
+
     /**
      * Insert a user in the database. If the user already exists, replace it.
      *
@@ -46,6 +82,14 @@ public interface UserDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     Completable insertUser(User user);
 
+    /**
+     * Insert users in the database, in a single transaction. Existing users are replaced.
+     *
+     * @param users the users to be inserted.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertUsers(List<User> users);
+
     /**
      * Delete all users.
      */
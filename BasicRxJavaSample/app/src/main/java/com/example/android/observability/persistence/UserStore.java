@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.processors.BehaviorProcessor;
+
+/**
+ * Keeps the users that are observed by id up to date.
+ * <p>
+ * All the observers of an id share one {@link BehaviorProcessor}, loaded with a query for that
+ * id when it is first observed. When the users table changes, a single query for the observed
+ * ids, rather than one per observer, refreshes them all, and only the users that changed are
+ * emitted. An id is forgotten once nothing observes it anymore.
+ * <p>
+ * The queries run one at a time on a worker of the given scheduler, so a refresh never
+ * overtakes an earlier one with older users.
+ */
+class UserStore {
+
+    /** SQLite takes at most 999 arguments per query by default. */
+    static final int MAX_IDS_PER_QUERY = 500;
+
+    private final UsersDatabase mDatabase;
+
+    private final UserDao mUserDao;
+
+    private final Scheduler.Worker mWorker;
+
+    /** The observed users, by id. Guarded by itself. */
+    private final Map<String, ObservedUser> mObserved = new HashMap<>();
+
+    private final AtomicBoolean mTrackingUsers = new AtomicBoolean();
+
+    private final AtomicBoolean mRefreshPending = new AtomicBoolean();
+
+    private final InvalidationTracker.Observer mUsersObserver =
+            new InvalidationTracker.Observer("users") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    if (mRefreshPending.compareAndSet(false, true)) {
+                        mWorker.schedule(UserStore.this::refresh);
+                    }
+                }
+            };
+
+    UserStore(UsersDatabase database, Scheduler scheduler) {
+        mDatabase = database;
+        mUserDao = database.userDao();
+        mWorker = scheduler.createWorker();
+    }
+
+    Flowable<User> observe(String id) {
+        return Flowable.defer(() -> {
+            ObservedUser user = acquire(id);
+            return user.mLatest
+                    .onBackpressureLatest()
+                    .doFinally(() -> release(user));
+        });
+    }
+
+    /**
+     * @return the number of ids that are observed.
+     */
+    int observedCount() {
+        synchronized (mObserved) {
+            return mObserved.size();
+        }
+    }
+
+    private ObservedUser acquire(String id) {
+        if (mTrackingUsers.compareAndSet(false, true)) {
+            // Adding the observer sets up triggers on the table, which is database work.
+            mWorker.schedule(() ->
+                    mDatabase.getInvalidationTracker().addObserver(mUsersObserver));
+        }
+        ObservedUser user;
+        synchronized (mObserved) {
+            user = mObserved.get(id);
+            if (user == null) {
+                user = new ObservedUser(id);
+                mObserved.put(id, user);
+                final ObservedUser added = user;
+                mWorker.schedule(() -> load(added));
+            }
+            user.mObservers++;
+        }
+        return user;
+    }
+
+    private void release(ObservedUser user) {
+        synchronized (mObserved) {
+            if (--user.mObservers == 0 && mObserved.get(user.mId) == user) {
+                mObserved.remove(user.mId);
+            }
+        }
+    }
+
+    private void load(ObservedUser user) {
+        try {
+            publish(user, mUserDao.getUserById(user.mId).blockingGet());
+        } catch (RuntimeException e) {
+            fail(user, e);
+        }
+    }
+
+    private void refresh() {
+        mRefreshPending.set(false);
+        List<ObservedUser> observed;
+        synchronized (mObserved) {
+            observed = new ArrayList<>(mObserved.values());
+        }
+        for (int from = 0; from < observed.size(); from += MAX_IDS_PER_QUERY) {
+            List<ObservedUser> chunk = observed.subList(from,
+                    Math.min(from + MAX_IDS_PER_QUERY, observed.size()));
+            List<String> ids = new ArrayList<>(chunk.size());
+            for (ObservedUser user : chunk) {
+                ids.add(user.mId);
+            }
+            Map<String, User> users = new HashMap<>();
+            try {
+                for (User user : mUserDao.getUsersByIds(ids)) {
+                    users.put(user.getId(), user);
+                }
+            } catch (RuntimeException e) {
+                for (ObservedUser user : chunk) {
+                    fail(user, e);
+                }
+                continue;
+            }
+            for (ObservedUser user : chunk) {
+                publish(user, users.get(user.mId));
+            }
+        }
+    }
+
+    /**
+     * Signals the error to the observers of the user, and forgets it so that the next observer
+     * of its id loads it again.
+     */
+    private void fail(ObservedUser user, Throwable error) {
+        synchronized (mObserved) {
+            if (mObserved.get(user.mId) == user) {
+                mObserved.remove(user.mId);
+            }
+        }
+        user.mLatest.onError(error);
+    }
+
+    /**
+     * Emits the user, unless it is missing or didn't change.
+     */
+    private static void publish(ObservedUser observed, @Nullable User user) {
+        if (user != null && !user.equals(observed.mLatest.getValue())) {
+            observed.mLatest.onNext(user);
+        }
+    }
+
+    private static final class ObservedUser {
+
+        final String mId;
+
+        final BehaviorProcessor<User> mLatest = BehaviorProcessor.create();
+
+        /** Guarded by {@link UserStore#mObserved}. */
+        int mObservers;
+
+        ObservedUser(String id) {
+            mId = id;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.exceptions.MissingBackpressureException;
+import io.reactivex.subjects.CompletableSubject;
+
+/**
+ * Groups user writes that arrive within a time window, or until there are enough of them, and
+ * writes each group in a single Room transaction. Every write completes once its group has been
+ * committed.
+ * <p>
+ * A transaction per group rather than per user means one commit, and one invalidation of the
+ * users table, per group. When a group updates the same user more than once, only the last
+ * update is written.
+ * <p>
+ * The window of a group starts with its first write, so nothing is scheduled while there is
+ * nothing to write.
+ * <p>
+ * At most {@code capacity} writes wait at a time. Past that, writes fail with a
+ * {@link MissingBackpressureException} instead of queueing without bound; {@link #write(Flowable)}
+ * never gets there, as it only requests as many users from its source as it can have waiting.
+ */
+class UserWriteBuffer {
+
+    private final UserDao mUserDao;
+
+    private final long mWindow;
+
+    private final TimeUnit mUnit;
+
+    private final int mMaxBatchSize;
+
+    private final int mCapacity;
+
+    private final Scheduler.Worker mWorker;
+
+    private final AtomicInteger mPending = new AtomicInteger();
+
+    /** The writes of the group that is open. Guarded by this. */
+    private List<PendingWrite> mGroup = new ArrayList<>();
+
+    /** Ends the window of the group that is open. Guarded by this. */
+    private Disposable mWindowEnd;
+
+    /**
+     * @param window       how long a group waits for more writes after its first one.
+     * @param maxBatchSize the most writes in a group; a full group is written right away.
+     * @param capacity     the most writes waiting at a time.
+     * @param scheduler    where the groups are written, one at a time.
+     */
+    UserWriteBuffer(UserDao userDao, long window, TimeUnit unit, int maxBatchSize, int capacity,
+            Scheduler scheduler) {
+        mUserDao = userDao;
+        mWindow = window;
+        mUnit = unit;
+        mMaxBatchSize = maxBatchSize;
+        mCapacity = capacity;
+        // A worker runs its tasks one at a time and in order, so groups are written in turn.
+        mWorker = scheduler.createWorker();
+    }
+
+    /**
+     * Queues the user to be written with the next group.
+     *
+     * @return a {@link Completable} that queues the write when subscribed to, and completes
+     * once the group it is in was committed.
+     */
+    Completable insertOrUpdateUser(User user) {
+        return Completable.defer(() -> {
+            if (mPending.incrementAndGet() > mCapacity) {
+                mPending.decrementAndGet();
+                return Completable.error(new MissingBackpressureException(
+                        "More than " + mCapacity + " user writes waiting"));
+            }
+            CompletableSubject written = CompletableSubject.create();
+            add(new PendingWrite(user, written));
+            return written;
+        });
+    }
+
+    /**
+     * Writes the users of {@code users} in groups, requesting no more of them than can wait.
+     *
+     * @return a {@link Flowable} that emits each user once it was written.
+     */
+    Flowable<User> write(Flowable<User> users) {
+        return users.flatMapSingle(user -> insertOrUpdateUser(user).toSingleDefault(user),
+                false, Math.min(mCapacity, mMaxBatchSize * 2));
+    }
+
+    void dispose() {
+        mWorker.dispose();
+    }
+
+    private void add(PendingWrite write) {
+        final List<PendingWrite> full;
+        synchronized (this) {
+            mGroup.add(write);
+            if (mGroup.size() == 1 && mMaxBatchSize > 1) {
+                mWindowEnd = mWorker.schedule(this::writeOpenGroup, mWindow, mUnit);
+                return;
+            }
+            if (mGroup.size() < mMaxBatchSize) {
+                return;
+            }
+            full = mGroup;
+            mGroup = new ArrayList<>();
+            if (mWindowEnd != null) {
+                mWindowEnd.dispose();
+                mWindowEnd = null;
+            }
+        }
+        mWorker.schedule(() -> apply(full));
+    }
+
+    private void writeOpenGroup() {
+        List<PendingWrite> group;
+        synchronized (this) {
+            group = mGroup;
+            mGroup = new ArrayList<>();
+            mWindowEnd = null;
+        }
+        // The group may have filled up and been written just as its window ended.
+        if (!group.isEmpty()) {
+            apply(group);
+        }
+    }
+
+    private void apply(List<PendingWrite> batch) {
+        // The last update of each user wins, in the order the users were first written.
+        Map<String, User> users = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            users.put(write.mUser.getId(), write.mUser);
+        }
+        Throwable error = null;
+        try {
+            mUserDao.insertUsers(new ArrayList<>(users.values()));
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        mPending.addAndGet(-batch.size());
+        for (PendingWrite write : batch) {
+            if (error == null) {
+                write.mWritten.onComplete();
+            } else {
+                write.mWritten.onError(error);
+            }
+        }
+    }
+
+    private static class PendingWrite {
+
+        final User mUser;
+
+        final CompletableSubject mWritten;
+
+        PendingWrite(User user, CompletableSubject written) {
+            mUser = user;
+            mWritten = written;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import android.content.Context;
 
+import java.util.concurrent.Executor;
+
 /**
  * The Room database that contains the Users table
  */
@@ -31,12 +33,17 @@ public abstract class UsersDatabase extends RoomDatabase {
 
     public abstract UserDao userDao();
 
-    public static UsersDatabase getInstance(Context context) {
+    /**
+     * @param queryExecutor the executor Room runs its queries on, including those of the
+     *                      {@link io.reactivex.Flowable}s from {@link UserDao}.
+     */
+    public static UsersDatabase getInstance(Context context, Executor queryExecutor) {
         if (INSTANCE == null) {
             synchronized (UsersDatabase.class) {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             UsersDatabase.class, "Sample.db")
+                            .setQueryExecutor(queryExecutor)
                             .build();
                 }
             }
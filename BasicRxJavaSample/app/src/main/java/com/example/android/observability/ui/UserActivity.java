@@ -22,15 +22,19 @@ import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.android.observability.Injection;
+import com.example.android.observability.SchedulerProvider;
 import com.example.android.persistence.R;
 
-import io.reactivex.android.schedulers.AndroidSchedulers;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import io.reactivex.disposables.CompositeDisposable;
-import io.reactivex.schedulers.Schedulers;
 
 
 /**
@@ -48,6 +52,8 @@ public class UserActivity extends AppCompatActivity {
 
     private ViewModelFactory mViewModelFactory;
 
+    private SchedulerProvider mSchedulers;
+
     private UserViewModel mViewModel;
 
     private final CompositeDisposable mDisposable = new CompositeDisposable();
@@ -61,6 +67,7 @@ public class UserActivity extends AppCompatActivity {
         mUserNameInput = findViewById(R.id.user_name_input);
         mUpdateButton = findViewById(R.id.update_user);
 
+        mSchedulers = Injection.provideSchedulerProvider();
         mViewModelFactory = Injection.provideViewModelFactory(this);
         mViewModel = new ViewModelProvider(this, mViewModelFactory).get(UserViewModel.class);
         mUpdateButton.setOnClickListener(v -> updateUserName());
@@ -73,8 +80,8 @@ public class UserActivity extends AppCompatActivity {
         // Update the user name text view, at every onNext emission.
         // In case of error, log the exception.
         mDisposable.add(mViewModel.getUserName()
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
+                .subscribeOn(mSchedulers.database())
+                .observeOn(mSchedulers.mainThread())
                 .subscribe(userName -> mUserName.setText(userName),
                         throwable -> Log.e(TAG, "Unable to get username", throwable)));
     }
@@ -87,6 +94,19 @@ public class UserActivity extends AppCompatActivity {
         mDisposable.clear();
     }
 
+    /**
+     * Adds the scheduler metrics to {@code adb shell dumpsys activity
+     * com.example.android.persistence/com.example.android.observability.ui.UserActivity}.
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+            @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Schedulers:");
+        mSchedulers.dump(prefix + "  ", writer);
+    }
+
     private void updateUserName() {
         String userName = mUserNameInput.getText().toString();
         // Disable the update button until the user name update has been done
@@ -94,8 +114,8 @@ public class UserActivity extends AppCompatActivity {
         // Subscribe to updating the user name.
         // Re-enable the button once the user name has been updated
         mDisposable.add(mViewModel.updateUserName(userName)
-                .subscribeOn(Schedulers.io())
-                .observeOn(AndroidSchedulers.mainThread())
+                .subscribeOn(mSchedulers.database())
+                .observeOn(mSchedulers.mainThread())
                 .subscribe(() -> mUpdateButton.setEnabled(true),
                         throwable -> Log.e(TAG, "Unable to update username", throwable)));
     }
@@ -19,36 +19,62 @@ package com.example.android.observability.ui;
 import com.example.android.observability.UserDataSource;
 import com.example.android.observability.persistence.User;
 
+import java.util.concurrent.TimeUnit;
+
 import androidx.lifecycle.ViewModel;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * View Model for the {@link UserActivity}
  */
 public class UserViewModel extends ViewModel {
 
+    /**
+     * How long the user stays observed once nothing subscribes to the user name, long enough
+     * for the activity to be recreated after a configuration change.
+     */
+    static final long UNSUBSCRIBE_DELAY_SECONDS = 5;
+
     private final UserDataSource mDataSource;
 
+    private final Flowable<String> mUserName;
+
     private User mUser;
 
     public UserViewModel(UserDataSource dataSource) {
+        this(dataSource, Schedulers.computation());
+    }
+
+    /**
+     * @param delayScheduler the scheduler that waits {@link #UNSUBSCRIBE_DELAY_SECONDS} before
+     *                       the user stops being observed.
+     */
+    public UserViewModel(UserDataSource dataSource, Scheduler delayScheduler) {
         mDataSource = dataSource;
+        // All the subscribers share a single subscription to the data source. The latest name is
+        // replayed to new subscribers, so the activity recreated after a configuration change
+        // gets it without the user being queried again.
+        mUserName = Flowable.defer(mDataSource::getUser)
+                .doOnNext(user -> mUser = user)
+                // for every emission of the user, get the user name
+                .map(User::getUserName)
+                // the user is emitted again whenever the table changes, even if its name didn't
+                .distinctUntilChanged()
+                .replay(1)
+                .refCount(UNSUBSCRIBE_DELAY_SECONDS, TimeUnit.SECONDS, delayScheduler);
     }
 
     /**
      * Get the user name of the user.
      *
-     * @return a {@link Flowable} that will emit every time the user name has been updated.
+     * @return a {@link Flowable} that will emit the latest user name, then every time the user
+     * name has changed.
      */
     public Flowable<String> getUserName() {
-        return mDataSource.getUser()
-                // for every emission of the user, get the user name
-                .map(user -> {
-                    mUser = user;
-                    return user.getUserName();
-                });
-
+        return mUserName;
     }
 
     /**
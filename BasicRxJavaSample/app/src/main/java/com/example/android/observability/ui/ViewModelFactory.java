@@ -19,6 +19,7 @@ package com.example.android.observability.ui;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
+import com.example.android.observability.SchedulerProvider;
 import com.example.android.observability.UserDataSource;
 
 /**
@@ -28,15 +29,18 @@ public class ViewModelFactory implements ViewModelProvider.Factory {
 
     private final UserDataSource mDataSource;
 
-    public ViewModelFactory(UserDataSource dataSource) {
+    private final SchedulerProvider mSchedulers;
+
+    public ViewModelFactory(UserDataSource dataSource, SchedulerProvider schedulers) {
         mDataSource = dataSource;
+        mSchedulers = schedulers;
     }
 
     @Override
     @NonNull
     public <T extends ViewModel> T create(@NonNull Class<T> modelClass) {
         if (modelClass.isAssignableFrom(UserViewModel.class)) {
-            return (T) new UserViewModel(mDataSource);
+            return (T) new UserViewModel(mDataSource, mSchedulers.computation());
         }
         //noinspection unchecked
         throw new IllegalArgumentException("Unknown ViewModel class");
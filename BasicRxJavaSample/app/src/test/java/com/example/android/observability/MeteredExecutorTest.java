@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link MeteredExecutor}
+ */
+public class MeteredExecutorTest {
+
+    private final MeteredExecutor mExecutor = new MeteredExecutor("test", 2);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void execute_runsOnAtMostThreadCountThreads() throws InterruptedException {
+        // Given tasks that block until released
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            mExecutor.execute(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finished.countDown();
+            });
+        }
+
+        // When two of them are running
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        // The others wait for a thread
+        assertEquals(2, mExecutor.getActiveWorkers());
+        assertEquals(3, mExecutor.getQueuedTasks());
+
+        // And once they are released, all of them run, never more than two at once
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(5, mExecutor.getStartedTasks());
+        assertEquals(0, mExecutor.getQueuedTasks());
+        assertEquals(2, mExecutor.getPeakActiveWorkers());
+        assertTrue(mExecutor.getMaxQueueLatencyNanos() > 0);
+        assertTrue(mExecutor.getAverageQueueLatencyNanos() <= mExecutor.getMaxQueueLatencyNanos());
+    }
+}
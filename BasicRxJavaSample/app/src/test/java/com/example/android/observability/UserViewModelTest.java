@@ -17,6 +17,9 @@
 package com.example.android.observability;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,8 +35,14 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.processors.BehaviorProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
 
 /**
  * Unit test for {@link UserViewModel}
@@ -49,13 +58,15 @@ public class UserViewModelTest {
     @Captor
     private ArgumentCaptor<User> mUserArgumentCaptor;
 
+    private final TestScheduler mScheduler = new TestScheduler();
+
     private UserViewModel mViewModel;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
 
-        mViewModel = new UserViewModel(mDataSource);
+        mViewModel = new UserViewModel(mDataSource, mScheduler);
     }
 
     @Test
@@ -98,4 +109,69 @@ public class UserViewModelTest {
         assertThat(mUserArgumentCaptor.getValue().getUserName(), Matchers.is("new user name"));
     }
 
+    @Test
+    public void getUserName_dropsUnchangedNames() {
+        // Given that the user is emitted again with the same name
+        User user = new User("id", "user name");
+        when(mDataSource.getUser()).thenReturn(Flowable.just(user, user,
+                new User("id", "user name"), new User("id", "new user name")));
+
+        //When getting the user name
+        mViewModel.getUserName()
+                .test()
+                // Each name is emitted once
+                .assertValues("user name", "new user name");
+    }
+
+    @Test
+    public void getUserName_sharesUser() {
+        // Given that the UserDataSource returns a user
+        AtomicInteger subscriptions = new AtomicInteger();
+        BehaviorProcessor<User> user = BehaviorProcessor.createDefault(new User("user name"));
+        when(mDataSource.getUser())
+                .thenReturn(user.doOnSubscribe(s -> subscriptions.incrementAndGet()));
+
+        // When getting the user name twice
+        TestSubscriber<String> first = mViewModel.getUserName().test();
+        TestSubscriber<String> second = mViewModel.getUserName().test();
+        user.onNext(new User("new user name"));
+
+        // The user is observed once, and both get every name
+        assertEquals(1, subscriptions.get());
+        first.assertValues("user name", "new user name");
+        second.assertValues("user name", "new user name");
+    }
+
+    @Test
+    public void getUserName_whenResubscribedSoon_replaysWithoutObservingUserAgain() {
+        // Given that the user name was emitted to a subscriber that went away
+        AtomicInteger subscriptions = new AtomicInteger();
+        BehaviorProcessor<User> user = BehaviorProcessor.createDefault(new User("user name"));
+        when(mDataSource.getUser())
+                .thenReturn(user.doOnSubscribe(s -> subscriptions.incrementAndGet()));
+        mViewModel.getUserName().test().dispose();
+
+        // When getting the user name again, e.g. after a configuration change
+        mScheduler.advanceTimeBy(1, TimeUnit.SECONDS);
+        TestSubscriber<String> subscriber = mViewModel.getUserName().test();
+
+        // The last name is replayed from the same subscription to the user
+        subscriber.assertValue("user name");
+        assertEquals(1, subscriptions.get());
+        assertTrue(user.hasSubscribers());
+    }
+
+    @Test
+    public void getUserName_whenNotResubscribed_stopsObservingUser() {
+        // Given that the user name was emitted to a subscriber that went away
+        BehaviorProcessor<User> user = BehaviorProcessor.createDefault(new User("user name"));
+        when(mDataSource.getUser()).thenReturn(user);
+        mViewModel.getUserName().test().dispose();
+
+        // When nothing gets the user name for a while
+        mScheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        // The user isn't observed anymore
+        assertFalse(user.hasSubscribers());
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test the implementation of {@link ProductCache}
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductCacheTest {
+
+    private static final ProductEntity PRODUCT = new ProductEntity(1, "name", "desc", 3);
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    /**
+     * A single thread, so that once the tasks queued on it have run, so have the cache's
+     * observer registration and Room's invalidation of the cache, see {@link #drainQueryExecutor}.
+     */
+    private ExecutorService mQueryExecutor;
+
+    private AppDatabase mDatabase;
+
+    private ProductCache mCache;
+
+    @Before
+    public void initDb() throws Exception {
+        mQueryExecutor = Executors.newSingleThreadExecutor();
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .setQueryExecutor(mQueryExecutor)
+                .allowMainThreadQueries()
+                .build();
+        mCache = new ProductCache(mDatabase, 10, 10);
+        mDatabase.productDao().insertAll(Collections.singletonList(PRODUCT));
+        // The cache adds its invalidation observer on the query executor.
+        drainQueryExecutor();
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+        mQueryExecutor.shutdown();
+    }
+
+    @Test
+    public void reopeningProductHitsCache() throws InterruptedException {
+        LiveDataTestUtil.getValue(loadProduct());
+        ProductEntity product = LiveDataTestUtil.getValue(loadProduct());
+
+        assertThat(product.getName(), is(PRODUCT.getName()));
+        assertThat(mCache.getProductStats().missCount, is(1));
+        assertThat(mCache.getProductStats().hitCount, is(1));
+    }
+
+    @Test
+    public void writeToProductsEvictsCachedProduct() throws Exception {
+        LiveDataTestUtil.getValue(loadProduct());
+
+        mDatabase.productDao().insertAll(Collections.singletonList(
+                new ProductEntity(PRODUCT.getId(), "new name", PRODUCT.getDescription(),
+                        PRODUCT.getPrice())));
+        // Room tells the cache about the write from the query executor.
+        drainQueryExecutor();
+        ProductEntity product = LiveDataTestUtil.getValue(loadProduct());
+
+        assertThat(product.getName(), is("new name"));
+        assertThat(mCache.getProductStats().hitCount, is(0));
+    }
+
+    /**
+     * Waits for the tasks queued on the query executor so far.
+     */
+    private void drainQueryExecutor() throws Exception {
+        mQueryExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private LiveData<ProductEntity> loadProduct() {
+        return mCache.loadProduct(PRODUCT.getId(),
+                () -> mDatabase.productDao().loadProductSync(PRODUCT.getId()));
+    }
+}
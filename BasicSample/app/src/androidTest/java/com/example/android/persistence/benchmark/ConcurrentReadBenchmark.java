@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures {@code loadProductSync} while a bulk insert keeps the writer busy, with write-ahead
+ * logging as BasicSample uses it and with a rollback journal for comparison. With a rollback
+ * journal a read has to wait for the running write transaction to commit.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentReadBenchmark {
+
+    private static final String DATABASE_NAME = "concurrent-read-benchmark-db";
+
+    private static final int PRODUCT_COUNT = 10_000;
+
+    private static final int WRITE_CHUNK_SIZE = 5_000;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    private final AtomicBoolean mWriting = new AtomicBoolean(true);
+
+    private AppDatabase mDatabase;
+
+    @After
+    public void tearDown() throws InterruptedException {
+        mWriting.set(false);
+        mWriter.shutdown();
+        mWriter.awaitTermination(1, TimeUnit.MINUTES);
+        mDatabase.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void readDuringBulkInsert_writeAheadLogging() throws Exception {
+        measureReads(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING);
+    }
+
+    @Test
+    public void readDuringBulkInsert_rollbackJournal() throws Exception {
+        measureReads(RoomDatabase.JournalMode.TRUNCATE);
+    }
+
+    private void measureReads(RoomDatabase.JournalMode journalMode) throws Exception {
+        mContext.deleteDatabase(DATABASE_NAME);
+        mDatabase = Room.databaseBuilder(mContext, AppDatabase.class, DATABASE_NAME)
+                .setJournalMode(journalMode)
+                .build();
+        insertProducts(1, PRODUCT_COUNT);
+
+        // Keep rewriting the catalog in large transactions until the benchmark is done.
+        Future<?> writes = mWriter.submit(() -> {
+            while (mWriting.get()) {
+                insertProducts(1, WRITE_CHUNK_SIZE);
+            }
+        });
+
+        final Random random = new Random(42);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertNotNull(mDatabase.productDao()
+                    .loadProductSync(1 + random.nextInt(PRODUCT_COUNT)));
+        }
+
+        mWriting.set(false);
+        // Surfaces a failure of the writer.
+        writes.get();
+    }
+
+    private void insertProducts(int fromId, int count) {
+        List<ProductEntity> products = new ArrayList<>(count);
+        for (int id = fromId; id < fromId + count; id++) {
+            products.add(new ProductEntity(id, "Product " + id, "Product " + id + " is fine",
+                    id % 240));
+        }
+        // One transaction for the whole list.
+        mDatabase.productDao().insertAll(products);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.DataGenerator;
+import com.example.android.persistence.db.entity.CommentEntity;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Measures the database part of a first launch: from a device without the database to the first
+ * page of products read back, for both {@link AppDatabase.Population} modes.
+ * <p>
+ * The time until the list is actually on screen is reported by {@code ProductListFragment}
+ * through {@code reportFullyDrawn()}, and shows up as "Fully drawn" in logcat on a cold start.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class DatabaseStartupBenchmark {
+
+    private static final String DATABASE_NAME = "startup-benchmark-db";
+
+    private static final int FIRST_PAGE_SIZE = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    @Test
+    public void prepackaged() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            mContext.deleteDatabase(DATABASE_NAME);
+            state.resumeTiming();
+
+            AppDatabase database = Room.databaseBuilder(mContext, AppDatabase.class, DATABASE_NAME)
+                    .createFromAsset(AppDatabase.PREPACKAGED_DATABASE_ASSET)
+                    .build();
+            assertFalse(loadFirstPage(database).isEmpty());
+
+            state.pauseTiming();
+            database.close();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void generated() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            mContext.deleteDatabase(DATABASE_NAME);
+            state.resumeTiming();
+
+            final AppDatabase database =
+                    Room.databaseBuilder(mContext, AppDatabase.class, DATABASE_NAME).build();
+            // Same work as the GENERATED population does in its onCreate callback.
+            final List<ProductEntity> products = DataGenerator.generateProducts();
+            final List<CommentEntity> comments =
+                    DataGenerator.generateCommentsForProducts(products);
+            database.runInTransaction(() -> {
+                database.productDao().insertAll(products);
+                database.commentDao().insertAll(comments);
+            });
+            assertFalse(loadFirstPage(database).isEmpty());
+
+            state.pauseTiming();
+            database.close();
+            state.resumeTiming();
+        }
+    }
+
+    private static List<ProductEntity> loadFirstPage(AppDatabase database) {
+        return database.productDao().loadProductsFrom(Integer.MIN_VALUE, FIRST_PAGE_SIZE);
+    }
+}
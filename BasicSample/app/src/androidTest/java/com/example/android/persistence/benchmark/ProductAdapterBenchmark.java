@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.benchmark;
+
+import android.app.Instrumentation;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.ui.ProductAdapter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures how long the main thread is busy when a 50k item product list is updated, which is
+ * the time a frame would be delayed by the update.
+ * <p>
+ * {@link #synchronousDiff()} is the previous {@code ProductAdapter} behaviour, where
+ * {@code DiffUtil.calculateDiff} ran on the main thread. {@link #asyncListDiffer()} goes through
+ * the current adapter, where only submitting the list and dispatching the precomputed result
+ * happen on the main thread.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ProductAdapterBenchmark {
+
+    private static final int LIST_SIZE = 50_000;
+
+    private static final Runnable NO_OP = () -> { };
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Instrumentation mInstrumentation = InstrumentationRegistry.getInstrumentation();
+
+    private ExecutorService mDiffExecutor;
+
+    private List<ProductEntity> mProducts;
+
+    private List<ProductEntity> mUpdatedProducts;
+
+    @Before
+    public void createLists() {
+        mDiffExecutor = Executors.newSingleThreadExecutor();
+        mProducts = new ArrayList<>(LIST_SIZE);
+        mUpdatedProducts = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            ProductEntity product = new ProductEntity(i, "Product " + i,
+                    "Description of product " + i, i % 240);
+            mProducts.add(product);
+            // Every tenth product gets a new price, the rest are equal copies.
+            mUpdatedProducts.add(new ProductEntity(i, product.getName(), product.getDescription(),
+                    i % 10 == 0 ? product.getPrice() + 1 : product.getPrice()));
+        }
+    }
+
+    @After
+    public void shutDown() {
+        mDiffExecutor.shutdownNow();
+    }
+
+    @Test
+    public void synchronousDiff() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        boolean updated = false;
+        while (state.keepRunning()) {
+            final List<ProductEntity> oldList = updated ? mUpdatedProducts : mProducts;
+            final List<ProductEntity> newList = updated ? mProducts : mUpdatedProducts;
+            mInstrumentation.runOnMainSync(() ->
+                    DiffUtil.calculateDiff(new LegacyProductCallback(oldList, newList))
+                            .dispatchUpdatesTo(NO_OP_UPDATE_CALLBACK));
+            mInstrumentation.runOnMainSync(NO_OP);
+            updated = !updated;
+        }
+    }
+
+    @Test
+    public void asyncListDiffer() throws InterruptedException {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        final ProductAdapter adapter = new ProductAdapter(null, mDiffExecutor);
+        final CountDownLatch initialList = new CountDownLatch(1);
+        mInstrumentation.runOnMainSync(
+                () -> adapter.setProductList(mProducts, initialList::countDown));
+        initialList.await();
+
+        boolean updated = false;
+        while (state.keepRunning()) {
+            final List<ProductEntity> newList = updated ? mProducts : mUpdatedProducts;
+            mInstrumentation.runOnMainSync(() -> {
+                adapter.setProductList(newList);
+                // Hold the main thread until the diff is done so the dispatch it posts runs in
+                // the timed block below instead of slipping in while timing is paused.
+                state.pauseTiming();
+                awaitDiff();
+                state.resumeTiming();
+            });
+            mInstrumentation.runOnMainSync(NO_OP);
+            updated = !updated;
+        }
+    }
+
+    private void awaitDiff() {
+        // The diff executor is single threaded, so this runs once the pending diff is done.
+        final CountDownLatch latch = new CountDownLatch(1);
+        mDiffExecutor.execute(latch::countDown);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final ListUpdateCallback NO_OP_UPDATE_CALLBACK = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+        }
+    };
+
+    /**
+     * The callback {@code ProductAdapter.setProductList} used before diffing moved off the main
+     * thread.
+     */
+    private static class LegacyProductCallback extends DiffUtil.Callback {
+
+        private final List<ProductEntity> mOldList;
+
+        private final List<ProductEntity> mNewList;
+
+        LegacyProductCallback(List<ProductEntity> oldList, List<ProductEntity> newList) {
+            mOldList = oldList;
+            mNewList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldList.get(oldItemPosition).getId() == mNewList.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            ProductEntity newProduct = mNewList.get(newItemPosition);
+            ProductEntity oldProduct = mOldList.get(oldItemPosition);
+            return newProduct.getId() == oldProduct.getId()
+                    && TextUtils.equals(newProduct.getDescription(), oldProduct.getDescription())
+                    && TextUtils.equals(newProduct.getName(), oldProduct.getName())
+                    && newProduct.getPrice() == oldProduct.getPrice();
+        }
+    }
+}
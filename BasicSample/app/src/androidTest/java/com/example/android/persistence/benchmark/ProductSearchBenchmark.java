@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.search.ProductSearch;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Measures {@link ProductSearch} against a catalog of {@link #PRODUCT_COUNT} products. The
+ * catalog is written once per run with the same adjectives and nouns as {@code DataGenerator},
+ * so common prefixes match a large part of it.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ProductSearchBenchmark {
+
+    private static final String DATABASE_NAME = "search-benchmark-db";
+
+    private static final int PRODUCT_COUNT = 500_000;
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    private static final String[] FIRST = new String[]{
+            "Special edition", "New", "Cheap", "Quality", "Used"};
+    private static final String[] SECOND = new String[]{
+            "Three-headed Monkey", "Rubber Chicken", "Pint of Grog", "Monocle"};
+    private static final String[] DESCRIPTION = new String[]{
+            "is finally here", "is recommended by Stan S. Stanman",
+            "is the best sold product on Mêlée Island", "is 💯", "is ❤️", "is fine"};
+
+    private static AppDatabase sDatabase;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @BeforeClass
+    public static void createCatalog() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        sDatabase = Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME).build();
+        final Random random = new Random(42);
+        try (SupportSQLiteStatement statement = sDatabase.compileStatement(
+                "INSERT INTO products (`id`, `name`, `description`, `price`) VALUES (?, ?, ?, ?)")) {
+            for (int start = 1; start <= PRODUCT_COUNT; start += CHUNK_SIZE) {
+                final int from = start;
+                sDatabase.runInTransaction(() -> {
+                    for (int id = from; id < from + CHUNK_SIZE && id <= PRODUCT_COUNT; id++) {
+                        String name = FIRST[random.nextInt(FIRST.length)] + " "
+                                + SECOND[random.nextInt(SECOND.length)] + " " + id;
+                        statement.bindLong(1, id);
+                        statement.bindString(2, name);
+                        statement.bindString(3, name + " "
+                                + DESCRIPTION[random.nextInt(DESCRIPTION.length)]);
+                        statement.bindLong(4, random.nextInt(240));
+                        statement.executeInsert();
+                    }
+                });
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @AfterClass
+    public static void deleteCatalog() {
+        sDatabase.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase(DATABASE_NAME);
+    }
+
+    /** A selective query, a few hundred matches. */
+    @Test
+    public void searchSelective() {
+        search("monocle 4711");
+    }
+
+    /** Matches a fifth of the catalog, every match is scored. */
+    @Test
+    public void searchBroad() {
+        search("chick");
+    }
+
+    /** Two prefix terms that each match a large part of the catalog. */
+    @Test
+    public void searchMultiTerm() {
+        search("qual mon");
+    }
+
+    private void search(String query) {
+        final ProductSearch search = new ProductSearch(sDatabase.productDao());
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            assertFalse(search.search(query, ProductSearch.DEFAULT_LIMIT).isEmpty());
+        }
+    }
+}
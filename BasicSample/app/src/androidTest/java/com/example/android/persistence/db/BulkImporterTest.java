@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.android.persistence.LiveDataTestUtil;
+import com.example.android.persistence.db.entity.CommentEntity;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Test the implementation of {@link BulkImporter}
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkImporterTest {
+
+    private static final String PRODUCTS =
+            "{\"id\": 1, \"name\": \"name\", \"description\": \"desc\", \"price\": 3}\n"
+            + "{\"id\": 2, \"name\": \"name2\", \"description\": \"desc2\", \"price\": 20}\n"
+            + "{\"id\": 3, \"name\": \"name3\", \"description\": null, \"price\": 7}\n";
+
+    private static final String COMMENTS =
+            "{\"productId\": 1, \"text\": \"comment\", \"postedAt\": 1500000000000}\n"
+            + "{\"productId\": 1, \"text\": \"comment2\", \"postedAt\": 1500000001000}\n";
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppDatabase mDatabase;
+
+    private BulkImporter mImporter;
+
+    @Before
+    public void initDb() throws Exception {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        // Chunks of two so the three products span more than one transaction.
+        mImporter = new BulkImporter(mDatabase, Runnable::run, 2);
+    }
+
+    @After
+    public void closeDb() throws Exception {
+        mDatabase.close();
+    }
+
+    @Test
+    public void importProductsInChunks() throws InterruptedException {
+        BulkImporter.Progress progress =
+                LiveDataTestUtil.getValue(mImporter.importProducts(stream(PRODUCTS)));
+
+        assertThat(progress.state, is(BulkImporter.Progress.State.SUCCEEDED));
+        assertThat(progress.rowCount, is(3));
+        List<ProductEntity> products = mDatabase.productDao().loadProductsFrom(0, 10);
+        assertThat(products.size(), is(3));
+        assertThat(products.get(1).getPrice(), is(20));
+    }
+
+    @Test
+    public void importCommentsAfterProducts() throws InterruptedException {
+        LiveDataTestUtil.getValue(mImporter.importProducts(stream(PRODUCTS)));
+        BulkImporter.Progress progress =
+                LiveDataTestUtil.getValue(mImporter.importComments(stream(COMMENTS)));
+
+        assertThat(progress.state, is(BulkImporter.Progress.State.SUCCEEDED));
+        List<CommentEntity> comments = mDatabase.commentDao().loadCommentsSync(1);
+        assertThat(comments.size(), is(2));
+        assertThat(comments.get(0).getPostedAt().getTime(), is(1500000000000L));
+    }
+
+    @Test
+    public void importCommentsWithoutProductsFails() throws InterruptedException {
+        BulkImporter.Progress progress =
+                LiveDataTestUtil.getValue(mImporter.importComments(stream(COMMENTS)));
+
+        assertThat(progress.state, is(BulkImporter.Progress.State.FAILED));
+        assertThat(progress.rowCount, is(0));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(Charset.forName("UTF-8")));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static com.example.android.persistence.db.TestData.COMMENTS;
+import static com.example.android.persistence.db.TestData.COMMENT_ENTITY;
+import static com.example.android.persistence.db.TestData.COMMENT_ENTITY2;
+import static com.example.android.persistence.db.TestData.PRODUCTS;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.util.SparseArray;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.android.persistence.db.entity.CommentEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+/**
+ * Test the implementation of {@link CommentBatchLoader}
+ */
+@RunWith(AndroidJUnit4.class)
+public class CommentBatchLoaderTest {
+
+    private static final int PRODUCT_WITHOUT_COMMENTS = 42;
+
+    private AppDatabase mDatabase;
+
+    private CommentBatchLoader mLoader;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        mDatabase.productDao().insertAll(PRODUCTS);
+        mDatabase.commentDao().insertAll(COMMENTS);
+        // One id per query, so every product needs its own chunk.
+        mLoader = new CommentBatchLoader(mDatabase.commentDao(), 1);
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void groupsCommentsByProduct() {
+        SparseArray<List<CommentEntity>> comments = mLoader.load(
+                COMMENT_ENTITY2.getProductId(), COMMENT_ENTITY.getProductId());
+
+        assertThat(comments.size(), is(2));
+        assertThat(comments.get(COMMENT_ENTITY.getProductId()).size(), is(1));
+        assertThat(comments.get(COMMENT_ENTITY.getProductId()).get(0).getText(),
+                is(COMMENT_ENTITY.getText()));
+        assertThat(comments.get(COMMENT_ENTITY2.getProductId()).get(0).getText(),
+                is(COMMENT_ENTITY2.getText()));
+    }
+
+    @Test
+    public void productWithoutCommentsHasEmptyList() {
+        SparseArray<List<CommentEntity>> comments = mLoader.load(PRODUCT_WITHOUT_COMMENTS);
+
+        assertThat(comments.size(), is(1));
+        assertThat(comments.get(PRODUCT_WITHOUT_COMMENTS).isEmpty(), is(true));
+    }
+
+    @Test
+    public void duplicateIdsAreLoadedOnce() {
+        SparseArray<List<CommentEntity>> comments = mLoader.load(
+                COMMENT_ENTITY.getProductId(), COMMENT_ENTITY.getProductId());
+
+        assertThat(comments.size(), is(1));
+        assertThat(comments.get(COMMENT_ENTITY.getProductId()).size(), is(1));
+    }
+}
@@ -18,6 +18,7 @@ package com.example.android.persistence.db;
 
 import static com.example.android.persistence.db.TestData.COMMENTS;
 import static com.example.android.persistence.db.TestData.COMMENT_ENTITY;
+import static com.example.android.persistence.db.TestData.COMMENT_ENTITY2;
 import static com.example.android.persistence.db.TestData.PRODUCTS;
 
 import static junit.framework.Assert.assertTrue;
@@ -42,6 +43,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -118,4 +120,16 @@ public class CommentDaoTest {
         assertThat(comments.size(), is(1));
     }
 
+    @Test
+    public void getCommentsForProducts() {
+        mProductDao.insertAll(PRODUCTS);
+        mCommentDao.insertAll(COMMENTS);
+
+        List<CommentEntity> comments = mCommentDao.loadCommentsForProductsSync(
+                Arrays.asList(COMMENT_ENTITY2.getProductId(), COMMENT_ENTITY.getProductId()));
+
+        assertThat(comments.size(), is(2));
+        assertThat(comments.get(0).getId(), is(COMMENT_ENTITY.getId()));
+        assertThat(comments.get(1).getId(), is(COMMENT_ENTITY2.getId()));
+    }
 }
@@ -18,6 +18,7 @@ package com.example.android.persistence.db;
 
 import static com.example.android.persistence.db.TestData.PRODUCTS;
 import static com.example.android.persistence.db.TestData.PRODUCT_ENTITY;
+import static com.example.android.persistence.db.TestData.PRODUCT_ENTITY2;
 
 import static junit.framework.Assert.assertTrue;
 
@@ -99,4 +100,34 @@ public class ProductDaoTest {
         assertThat(product.getPrice(), is(PRODUCT_ENTITY.getPrice()));
     }
 
+    @Test
+    public void getProductsAfterKey() {
+        mProductDao.insertAll(PRODUCTS);
+
+        List<ProductEntity> products = mProductDao.loadProductsAfter(PRODUCT_ENTITY.getId(), 10);
+
+        assertThat(products.size(), is(1));
+        assertThat(products.get(0).getId(), is(PRODUCT_ENTITY2.getId()));
+    }
+
+    @Test
+    public void getProductsBeforeKey() {
+        mProductDao.insertAll(PRODUCTS);
+
+        List<ProductEntity> products = mProductDao.loadProductsBefore(PRODUCT_ENTITY2.getId(), 10);
+
+        assertThat(products.size(), is(1));
+        assertThat(products.get(0).getId(), is(PRODUCT_ENTITY.getId()));
+    }
+
+    @Test
+    public void getProductsFromKeyHonorsLimit() {
+        mProductDao.insertAll(PRODUCTS);
+
+        List<ProductEntity> products = mProductDao.loadProductsFrom(PRODUCT_ENTITY.getId(), 1);
+
+        assertThat(products.size(), is(1));
+        assertThat(products.get(0).getId(), is(PRODUCT_ENTITY.getId()));
+    }
+
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.search;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import static junit.framework.Assert.assertTrue;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Test the implementation of {@link ProductSearch}
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProductSearchTest {
+
+    private static final ProductEntity NAME_MATCH = new ProductEntity(1, "Rubber Chicken",
+            "Rubber Chicken is fine", 10);
+    private static final ProductEntity DESCRIPTION_MATCH = new ProductEntity(2, "Monocle",
+            "Goes well with a chicken", 20);
+    private static final ProductEntity NO_MATCH = new ProductEntity(3, "Pint of Grog",
+            "Pint of Grog is finally here", 30);
+
+    private AppDatabase mDatabase;
+
+    private ProductSearch mSearch;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        mDatabase.productDao().insertAll(Arrays.asList(DESCRIPTION_MATCH, NAME_MATCH, NO_MATCH));
+        mSearch = new ProductSearch(mDatabase.productDao());
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void tokenizeDropsFtsSyntax() {
+        assertThat(SearchQuery.toMatchExpression("\"Rub\" OR -chick*"), is("rub* or* chick*"));
+        assertThat(SearchQuery.toMatchExpression(" \" - "), is((String) null));
+    }
+
+    @Test
+    public void prefixTermsMatch() {
+        List<ProductSearchResult> results = mSearch.search("rub chick", 10);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getProduct().getId(), is(NAME_MATCH.getId()));
+    }
+
+    @Test
+    public void nameMatchRanksFirst() {
+        List<ProductSearchResult> results = mSearch.search("Chicken", 10);
+
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).getProduct().getId(), is(NAME_MATCH.getId()));
+        assertThat(results.get(1).getProduct().getId(), is(DESCRIPTION_MATCH.getId()));
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    }
+
+    @Test
+    public void snippetHighlightsMatch() {
+        List<ProductSearchResult> results = mSearch.search("monoc", 10);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getSnippet(), containsString(
+                ProductSearchResult.HIGHLIGHT_START + "Monocle" + ProductSearchResult.HIGHLIGHT_END));
+    }
+
+    @Test
+    public void rankingConsidersMatchesInAnyIdOrder() {
+        List<ProductEntity> products = new ArrayList<>();
+        for (int id = 10; id < 30; id++) {
+            products.add(new ProductEntity(id, "Monocle " + id, "Goes well with a chicken", id));
+        }
+        // The best match has the highest id, FTS returns it last
+        products.add(new ProductEntity(100, "Chicken", "Chicken chicken", 100));
+        mDatabase.productDao().insertAll(products);
+
+        List<ProductSearchResult> results = mSearch.search("chicken", 1);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getProduct().getId(), is(100));
+    }
+
+    @Test
+    public void limitIsApplied() {
+        List<ProductSearchResult> results = mSearch.search("chicken", 1);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getProduct().getId(), is(NAME_MATCH.getId()));
+    }
+}
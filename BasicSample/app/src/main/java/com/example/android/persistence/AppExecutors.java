@@ -19,46 +19,149 @@ package com.example.android.persistence;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * Global executor pools for the whole application.
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
  * webservice requests).
+ * <p>
+ * Disk work follows SQLite's write-ahead logging model of many readers and one writer:
+ * {@link #diskRead()} runs reads on a pool sized to the number of cores, and {@link #diskIO()}
+ * runs writes, seeding and imports one at a time on a single writer thread, so a long write
+ * never holds up the readers. The sizes of the pools come from a {@link Config}, and
+ * {@link #getStats()} tells how long tasks queue in each of them.
  */
 public class AppExecutors {
 
-    private final Executor mDiskIO;
+    private final ExecutorPool mReaderPool;
+
+    private final ExecutorPool mWriterPool;
 
-    private final Executor mNetworkIO;
+    private final ExecutorPool mNetworkPool;
+
+    private final ExecutorPool mDiffPool;
 
     private final Executor mMainThread;
 
-    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
-        this.mDiskIO = diskIO;
-        this.mNetworkIO = networkIO;
-        this.mMainThread = mainThread;
+    public AppExecutors() {
+        this(Config.DEFAULT);
     }
 
-    public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
-                new MainThreadExecutor());
+    public AppExecutors(@NonNull Config config) {
+        mReaderPool = new ExecutorPool("disk-read", config.readerThreads,
+                config.readerQueueCapacity);
+        // A single thread, SQLite only allows one writer at a time anyway.
+        mWriterPool = new ExecutorPool("disk-write", 1, config.writerQueueCapacity);
+        mNetworkPool = new ExecutorPool("network", config.networkThreads,
+                config.networkQueueCapacity);
+        mDiffPool = new ExecutorPool("diff", config.diffThreads, config.diffQueueCapacity);
+        mMainThread = new MainThreadExecutor();
     }
 
+    /**
+     * Executor for disk writes, e.g. seeding and imports. Tasks run one at a time, in order.
+     */
     public Executor diskIO() {
-        return mDiskIO;
+        return mWriterPool.executor(ExecutorPool.Priority.BACKGROUND);
+    }
+
+    /**
+     * Executor for disk reads the user is waiting for. Runs concurrently with {@link #diskIO()}
+     * and with other reads.
+     */
+    public Executor diskRead() {
+        return mReaderPool.executor(ExecutorPool.Priority.USER_VISIBLE);
+    }
+
+    /**
+     * Executor Room runs its queries on, e.g. for LiveData and invalidation. Shares the threads
+     * of {@link #diskRead()}, but queues every task, as Room doesn't handle rejection.
+     */
+    public Executor roomQuery() {
+        return mReaderPool.unboundedExecutor(ExecutorPool.Priority.USER_VISIBLE);
+    }
+
+    /**
+     * Executor Room runs its transactions on. Shares the thread of {@link #diskIO()}, but
+     * queues every task.
+     */
+    public Executor roomTransaction() {
+        return mWriterPool.unboundedExecutor(ExecutorPool.Priority.BACKGROUND);
     }
 
     public Executor networkIO() {
-        return mNetworkIO;
+        return mNetworkPool.executor(ExecutorPool.Priority.BACKGROUND);
     }
 
     public Executor mainThread() {
         return mMainThread;
     }
 
+    /**
+     * Executor used by list adapters to compute diffs, kept apart from diskIO so a large diff
+     * doesn't hold up database work and vice versa.
+     */
+    public Executor diff() {
+        return mDiffPool.executor(ExecutorPool.Priority.USER_VISIBLE);
+    }
+
+    public List<ExecutorPool> getPools() {
+        return Arrays.asList(mReaderPool, mWriterPool, mNetworkPool, mDiffPool);
+    }
+
+    /**
+     * Returns the counters of every priority of every pool.
+     */
+    public List<ExecutorPool.Stats> getStats() {
+        List<ExecutorPool.Stats> stats = new ArrayList<>();
+        for (ExecutorPool pool : getPools()) {
+            stats.addAll(pool.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Sizes of the pools. Queues are bounded so a runaway producer fails fast instead of
+     * piling up work; a task submitted to a full pool is rejected, unless it is Room's.
+     */
+    public static final class Config {
+
+        /** One reader per core, but at least two so a slow read doesn't hold up the others. */
+        public static final Config DEFAULT = new Config(
+                Math.max(2, Runtime.getRuntime().availableProcessors()), 256, 256, 3, 64, 1, 16);
+
+        public final int readerThreads;
+
+        public final int readerQueueCapacity;
+
+        public final int writerQueueCapacity;
+
+        public final int networkThreads;
+
+        public final int networkQueueCapacity;
+
+        public final int diffThreads;
+
+        public final int diffQueueCapacity;
+
+        public Config(int readerThreads, int readerQueueCapacity, int writerQueueCapacity,
+                int networkThreads, int networkQueueCapacity, int diffThreads,
+                int diffQueueCapacity) {
+            this.readerThreads = readerThreads;
+            this.readerQueueCapacity = readerQueueCapacity;
+            this.writerQueueCapacity = writerQueueCapacity;
+            this.networkThreads = networkThreads;
+            this.networkQueueCapacity = networkQueueCapacity;
+            this.diffThreads = diffThreads;
+            this.diffQueueCapacity = diffQueueCapacity;
+        }
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
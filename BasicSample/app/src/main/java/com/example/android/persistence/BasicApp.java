@@ -33,6 +33,10 @@ public class BasicApp extends Application { //싱글톤 클래스에 접근할 
         mAppExecutors = new AppExecutors();
     }
 
+    public AppExecutors getAppExecutors() {
+        return mAppExecutors;
+    }
+
     public AppDatabase getDatabase() {
         return AppDatabase.getInstance(this, mAppExecutors);
     }
@@ -1,27 +1,65 @@
 package com.example.android.persistence;
 
+import android.util.SparseArray;
+
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.BulkImporter;
+import com.example.android.persistence.db.CommentBatchLoader;
+import com.example.android.persistence.db.InvalidationLiveData;
+import com.example.android.persistence.db.ProductPagingSource;
 import com.example.android.persistence.db.entity.CommentEntity;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.search.ProductSearch;
+import com.example.android.persistence.db.search.ProductSearchResult;
+import com.example.android.persistence.model.Product;
 
+import java.io.InputStream;
 import java.util.List;
 
+import kotlin.jvm.functions.Function1;
+
 /**
  * Repository handling the work with products and comments.
  */
 public class DataRepository {
 
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * Upper bound on the number of products held by a paged list. Pages further away than this
+     * from the viewport are dropped, so memory stays flat no matter how far the user scrolls.
+     */
+    private static final int MAX_PAGED_PRODUCTS = PAGE_SIZE * 6;
+
+    private static final int MAX_CACHED_PRODUCTS = 100;
+
+    /** Room for the comments prefetched for the pages around the viewport. */
+    private static final int MAX_CACHED_COMMENT_LISTS = PAGE_SIZE * 2;
+
     private static DataRepository sInstance;
 
     private final AppDatabase mDatabase;
+    private final ProductCache mCache;
+    private final ProductSearch mSearch;
+    private final CommentBatchLoader mCommentLoader;
     private MediatorLiveData<List<ProductEntity>> mObservableProducts;
     //MediatorLiveData는 여러 LiveData를 병합할 수 있도록 해주는 LiveData 하위 클래스
     //네트워크 혹은 데이터베이스 데이터와 관련된 LiveData 객체를 추가할 수 있음.
 
     private DataRepository(final AppDatabase database) {
         mDatabase = database;
+        mCache = new ProductCache(database, MAX_CACHED_PRODUCTS, MAX_CACHED_COMMENT_LISTS);
+        mSearch = new ProductSearch(database.productDao());
+        mCommentLoader = new CommentBatchLoader(database.commentDao(),
+                CommentBatchLoader.DEFAULT_CHUNK_SIZE);
         mObservableProducts = new MediatorLiveData<>();
 
         //addSource를 통해 observe할 LiveData와 수행할 로직을 추가하여 전달.
@@ -51,15 +89,104 @@ public class DataRepository {
         return mObservableProducts;
     }
 
+    /**
+     * Get the products one page at a time, keyed on product id. Unlike {@link #getProducts()} only
+     * the pages around the viewport are read and held in memory, and an invalidation only
+     * re-reads those pages.
+     * <p>
+     * Every call creates a new {@link Pager}; callers should cache the result in their own scope.
+     * The comments of every loaded page are prefetched into the cache with one query, so opening
+     * a product from the list doesn't wait for them.
+     */
+    public LiveData<PagingData<ProductEntity>> getProductsPaged() {
+        Pager<Integer, ProductEntity> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, PAGE_SIZE * 2,
+                        MAX_PAGED_PRODUCTS),
+                () -> new ProductPagingSource(mDatabase, mDatabase.getQueryExecutor(),
+                        this::prefetchCommentsSync));
+        // Same as getProducts(): don't emit anything until the database has been populated.
+        return Transformations.switchMap(mDatabase.getDatabaseCreated(),
+                (Function1<Boolean, LiveData<PagingData<ProductEntity>>>) created ->
+                        PagingLiveData.getLiveData(pager));
+    }
+
+    /**
+     * Load a product, served from the in-memory cache when it was loaded before and the products
+     * table hasn't changed since.
+     */
     public LiveData<ProductEntity> loadProduct(final int productId) {
-        return mDatabase.productDao().loadProduct(productId);
+        return mCache.loadProduct(productId,
+                () -> mDatabase.productDao().loadProductSync(productId));
     }
 
+    /**
+     * Load the comments of a product, served from the in-memory cache when they were loaded
+     * before and the comments table hasn't changed since.
+     */
     public LiveData<List<CommentEntity>> loadComments(final int productId) {
-        return mDatabase.commentDao().loadComments(productId);
+        return mCache.loadComments(productId,
+                () -> mDatabase.commentDao().loadCommentsSync(productId));
+    }
+
+    /**
+     * Load the comments of several products with as few queries as possible, see
+     * {@link CommentBatchLoader}, and load them again when the comments change.
+     */
+    public LiveData<SparseArray<List<CommentEntity>>> loadCommentsForProducts(
+            final int... productIds) {
+        final int[] ids = productIds.clone();
+        return new InvalidationLiveData<>(mDatabase, mDatabase.getQueryExecutor(),
+                signal -> mCommentLoader.load(ids), "comments");
     }
 
-    public LiveData<List<ProductEntity>> searchProducts(String query) {
-        return mDatabase.productDao().searchAllProducts(query);
+    /**
+     * Load the comments of {@code products} into the cache with one query.
+     */
+    @WorkerThread
+    private void prefetchCommentsSync(List<? extends Product> products) {
+        final int[] ids = new int[products.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = products.get(i).getId();
+        }
+        mCache.prefetchComments(() -> mCommentLoader.load(ids));
+    }
+
+    public ProductCache getCache() {
+        return mCache;
+    }
+
+    /**
+     * Stream products in JSON lines format into the database, see {@link BulkImporter}.
+     */
+    public LiveData<BulkImporter.Progress> importProducts(InputStream input) {
+        return newImporter().importProducts(input);
+    }
+
+    /**
+     * Stream comments in JSON lines format into the database, see {@link BulkImporter}. The
+     * products they belong to have to be imported first.
+     */
+    public LiveData<BulkImporter.Progress> importComments(InputStream input) {
+        return newImporter().importComments(input);
+    }
+
+    private BulkImporter newImporter() {
+        // The transaction executor is serial, so imports queue behind each other instead of
+        // interleaving their chunks.
+        return new BulkImporter(mDatabase, mDatabase.getTransactionExecutor(),
+                BulkImporter.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Search the products for what the user typed, best match first, and search again when the
+     * products change. See {@link ProductSearch} for how the query is matched and ranked. A
+     * search still running when the LiveData loses its last observer is cancelled.
+     */
+    public LiveData<List<ProductSearchResult>> searchProducts(CharSequence query) {
+        // Copy the query, it may be an Editable that keeps changing while the search runs.
+        final String text = query == null ? null : query.toString();
+        return new InvalidationLiveData<>(mDatabase, mDatabase.getQueryExecutor(),
+                signal -> mSearch.search(text, ProductSearch.DEFAULT_LIMIT, signal),
+                "products", "productsFts");
     }
 }
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named, fixed size thread pool with a bounded queue that runs queued tasks by
+ * {@link Priority}, and keeps counters of how long tasks wait and run.
+ * <p>
+ * Tasks are submitted through one {@link Executor} per priority, see {@link #executor(Priority)}.
+ * A queued {@link Priority#USER_VISIBLE} task runs before any queued
+ * {@link Priority#BACKGROUND} task, tasks of the same priority run in submission order. Running
+ * tasks are never preempted, so a user visible task still waits when all threads are busy with
+ * background work; the per priority {@link Stats} show how often and for how long.
+ * <p>
+ * When the queue is full, {@link Executor#execute(Runnable)} throws a
+ * {@link RejectedExecutionException}, except on the executors of
+ * {@link #unboundedExecutor(Priority)}, whose tasks are always queued.
+ */
+public class ExecutorPool {
+
+    /**
+     * Order in which queued tasks are started.
+     */
+    public enum Priority {
+        /** Work the user is waiting for, e.g. the queries behind what is on screen. */
+        USER_VISIBLE,
+        /** Everything else, e.g. writes, imports and prefetching. */
+        BACKGROUND
+    }
+
+    private final String mName;
+
+    private final int mQueueCapacity;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    private final Lane[] mLanes;
+
+    private final AtomicLong mSequence = new AtomicLong();
+
+    public ExecutorPool(@NonNull String name, int threadCount, int queueCapacity) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "queueCapacity must be positive: " + queueCapacity);
+        }
+        mName = name;
+        mQueueCapacity = queueCapacity;
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new BoundedPriorityQueue(queueCapacity), new NamedThreadFactory(name));
+        Priority[] priorities = Priority.values();
+        mLanes = new Lane[priorities.length * 2];
+        for (Priority priority : priorities) {
+            mLanes[priority.ordinal()] = new Lane(priority, true);
+            mLanes[priorities.length + priority.ordinal()] = new Lane(priority, false);
+        }
+    }
+
+    /**
+     * Returns the executor that runs tasks on this pool with the given priority.
+     */
+    @NonNull
+    public Executor executor(@NonNull Priority priority) {
+        return mLanes[priority.ordinal()];
+    }
+
+    /**
+     * Returns an executor that runs tasks on this pool with the given priority, and queues them
+     * even when the queue is full. For libraries that submit their own work and don't expect it
+     * to be rejected, like Room.
+     */
+    @NonNull
+    public Executor unboundedExecutor(@NonNull Priority priority) {
+        return mLanes[Priority.values().length + priority.ordinal()];
+    }
+
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns a snapshot of the counters of this pool, one entry per priority for
+     * {@link #executor(Priority)} and one for {@link #unboundedExecutor(Priority)}.
+     */
+    @NonNull
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>(mLanes.length);
+        for (Lane lane : mLanes) {
+            stats.add(lane.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Number of tasks waiting for a thread, of any priority. Tasks of unbounded executors can
+     * take it past the capacity.
+     */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return mExecutor.getActiveCount();
+    }
+
+    /**
+     * Stops accepting tasks. Tasks already submitted still run.
+     */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ExecutorPool{" + mName + ", threads=" + mExecutor.getMaximumPoolSize()
+                + ", active=" + getActiveCount()
+                + ", queued=" + getQueueDepth() + "/" + mQueueCapacity + "}";
+    }
+
+    /**
+     * Snapshot of the counters of the tasks of one priority. Times are in nanoseconds, wait time
+     * is from {@code execute} until the task starts running.
+     */
+    public static final class Stats {
+
+        @NonNull
+        public final String pool;
+
+        @NonNull
+        public final Priority priority;
+
+        /** Whether the tasks are rejected when the queue is full. */
+        public final boolean bounded;
+
+        public final long submitted;
+
+        public final long completed;
+
+        public final long rejected;
+
+        /** Tasks of this priority waiting for a thread right now. */
+        public final int queued;
+
+        public final int maxQueued;
+
+        public final long totalWaitNanos;
+
+        public final long maxWaitNanos;
+
+        public final long totalRunNanos;
+
+        public final long maxRunNanos;
+
+        Stats(@NonNull String pool, @NonNull Priority priority, boolean bounded, long submitted,
+                long completed, long rejected, int queued, int maxQueued, long totalWaitNanos,
+                long maxWaitNanos, long totalRunNanos, long maxRunNanos) {
+            this.pool = pool;
+            this.priority = priority;
+            this.bounded = bounded;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.queued = queued;
+            this.maxQueued = maxQueued;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.totalRunNanos = totalRunNanos;
+            this.maxRunNanos = maxRunNanos;
+        }
+
+        public long averageWaitNanos() {
+            return completed == 0 ? 0 : totalWaitNanos / completed;
+        }
+
+        public long averageRunNanos() {
+            return completed == 0 ? 0 : totalRunNanos / completed;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Stats{" + pool + "/" + priority + (bounded ? "" : "/unbounded")
+                    + ", submitted=" + submitted + ", completed=" + completed
+                    + ", rejected=" + rejected + ", queued=" + queued
+                    + ", maxQueued=" + maxQueued
+                    + ", avgWaitUs=" + TimeUnit.NANOSECONDS.toMicros(averageWaitNanos())
+                    + ", maxWaitUs=" + TimeUnit.NANOSECONDS.toMicros(maxWaitNanos)
+                    + ", avgRunUs=" + TimeUnit.NANOSECONDS.toMicros(averageRunNanos())
+                    + ", maxRunUs=" + TimeUnit.NANOSECONDS.toMicros(maxRunNanos) + "}";
+        }
+    }
+
+    /**
+     * Submits tasks with one priority and counts them.
+     */
+    private class Lane implements Executor {
+
+        private final Priority mPriority;
+
+        private final boolean mBounded;
+
+        private final AtomicLong mSubmitted = new AtomicLong();
+
+        private final AtomicLong mCompleted = new AtomicLong();
+
+        private final AtomicLong mRejected = new AtomicLong();
+
+        private final AtomicInteger mQueued = new AtomicInteger();
+
+        private final AtomicInteger mMaxQueued = new AtomicInteger();
+
+        private final AtomicLong mTotalWaitNanos = new AtomicLong();
+
+        private final AtomicLong mMaxWaitNanos = new AtomicLong();
+
+        private final AtomicLong mTotalRunNanos = new AtomicLong();
+
+        private final AtomicLong mMaxRunNanos = new AtomicLong();
+
+        Lane(Priority priority, boolean bounded) {
+            mPriority = priority;
+            mBounded = bounded;
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            Task task = new Task(this, command, mSequence.getAndIncrement());
+            int queued = mQueued.incrementAndGet();
+            try {
+                mExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                mQueued.decrementAndGet();
+                mRejected.incrementAndGet();
+                throw e;
+            }
+            updateMax(mMaxQueued, queued);
+            mSubmitted.incrementAndGet();
+        }
+
+        Stats stats() {
+            return new Stats(mName, mPriority, mBounded, mSubmitted.get(), mCompleted.get(),
+                    mRejected.get(), mQueued.get(), mMaxQueued.get(), mTotalWaitNanos.get(),
+                    mMaxWaitNanos.get(), mTotalRunNanos.get(), mMaxRunNanos.get());
+        }
+    }
+
+    /**
+     * A submitted task, ordered by priority and then by submission.
+     */
+    private static class Task implements Runnable, Comparable<Task> {
+
+        private final Lane mLane;
+
+        private final Runnable mCommand;
+
+        private final long mSequence;
+
+        private final long mEnqueuedAt = System.nanoTime();
+
+        Task(Lane lane, Runnable command, long sequence) {
+            mLane = lane;
+            mCommand = command;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            long startedAt = System.nanoTime();
+            mLane.mQueued.decrementAndGet();
+            long wait = startedAt - mEnqueuedAt;
+            mLane.mTotalWaitNanos.addAndGet(wait);
+            updateMax(mLane.mMaxWaitNanos, wait);
+            try {
+                mCommand.run();
+            } finally {
+                long run = System.nanoTime() - startedAt;
+                mLane.mTotalRunNanos.addAndGet(run);
+                updateMax(mLane.mMaxRunNanos, run);
+                mLane.mCompleted.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = mLane.mPriority.compareTo(other.mLane.mPriority);
+            return byPriority != 0 ? byPriority : Long.compare(mSequence, other.mSequence);
+        }
+    }
+
+    /**
+     * Priority queue that refuses new tasks of bounded lanes once it holds {@code capacity}
+     * tasks, which makes the pool reject them.
+     */
+    private static class BoundedPriorityQueue extends PriorityBlockingQueue<Runnable> {
+
+        private final int mCapacity;
+
+        private final Object mOfferLock = new Object();
+
+        BoundedPriorityQueue(int capacity) {
+            mCapacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            // Only producers are serialized, consumers can only make room.
+            synchronized (mOfferLock) {
+                boolean bounded = !(runnable instanceof Task) || ((Task) runnable).mLane.mBounded;
+                return (!bounded || size() < mCapacity) && super.offer(runnable);
+            }
+        }
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String mName;
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(runnable, mName + "-" + mCount.incrementAndGet());
+        }
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+}
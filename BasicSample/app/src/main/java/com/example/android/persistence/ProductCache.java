@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.entity.CommentEntity;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Bounded in-memory cache of products by id and of comment lists by product id.
+ * <p>
+ * Every value read from the database is written through to the cache, so reopening a product
+ * emits from memory on the main thread instead of going back to SQLite. Room's
+ * {@link InvalidationTracker} keeps the cache coherent: a write to a table evicts that table's
+ * entries and makes the active {@link LiveData}s handed out by this class reload.
+ */
+public class ProductCache {
+
+    private static final String TAG = "ProductCache";
+
+    private final Executor mExecutor;
+
+    private final Region<ProductEntity> mProducts;
+
+    private final Region<List<CommentEntity>> mComments;
+
+    ProductCache(final AppDatabase database, int maxProducts, int maxCommentLists) {
+        mExecutor = database.getQueryExecutor();
+        mProducts = new Region<>(maxProducts);
+        mComments = new Region<>(maxCommentLists);
+
+        final InvalidationTracker.Observer observer =
+                new InvalidationTracker.Observer("products", "comments") {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        if (tables.contains("products")) {
+                            mProducts.invalidate();
+                        }
+                        if (tables.contains("comments")) {
+                            mComments.invalidate();
+                        }
+                    }
+                };
+        // Adding an observer may sync the triggers on an open database, keep it off the caller.
+        mExecutor.execute(() -> database.getInvalidationTracker().addObserver(observer));
+    }
+
+    LiveData<ProductEntity> loadProduct(int productId, Callable<ProductEntity> loader) {
+        return new CachedLiveData<>(mProducts, productId, loader);
+    }
+
+    LiveData<List<CommentEntity>> loadComments(int productId,
+            Callable<List<CommentEntity>> loader) {
+        return new CachedLiveData<>(mComments, productId, loader);
+    }
+
+    /**
+     * Loads comment lists with {@code loader} and caches them, so opening one of these products
+     * later doesn't query the comments again. A failed prefetch is only logged, the comments are
+     * then loaded when the product is opened.
+     */
+    @WorkerThread
+    void prefetchComments(Callable<SparseArray<List<CommentEntity>>> loader) {
+        int generation = mComments.generation();
+        SparseArray<List<CommentEntity>> comments;
+        try {
+            comments = loader.call();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to prefetch comments", e);
+            return;
+        }
+        for (int i = 0; i < comments.size(); i++) {
+            mComments.putIfCurrent(comments.keyAt(i), comments.valueAt(i), generation);
+        }
+    }
+
+    public Stats getProductStats() {
+        return mProducts.stats();
+    }
+
+    public Stats getCommentStats() {
+        return mComments.stats();
+    }
+
+    /**
+     * Snapshot of the counters of one of the caches. Evictions include the entries dropped
+     * because their table was invalidated.
+     */
+    public static final class Stats {
+
+        public final int hitCount;
+
+        public final int missCount;
+
+        public final int evictionCount;
+
+        public final int size;
+
+        Stats(int hitCount, int missCount, int evictionCount, int size) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.size = size;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Stats{hits=" + hitCount + ", misses=" + missCount
+                    + ", evictions=" + evictionCount + ", size=" + size + "}";
+        }
+    }
+
+    /**
+     * The cached entries of one table, with a generation counter that is bumped on every
+     * invalidation so a load that raced with a write doesn't put a stale value back.
+     */
+    private static class Region<V> {
+
+        private final LruCache<Integer, V> mCache;
+
+        private final CopyOnWriteArrayList<Runnable> mInvalidationListeners =
+                new CopyOnWriteArrayList<>();
+
+        private int mGeneration;
+
+        Region(int maxSize) {
+            mCache = new LruCache<>(maxSize);
+        }
+
+        V get(int key) {
+            return mCache.get(key);
+        }
+
+        synchronized int generation() {
+            return mGeneration;
+        }
+
+        synchronized void putIfCurrent(int key, V value, int generation) {
+            if (generation == mGeneration) {
+                mCache.put(key, value);
+            }
+        }
+
+        void invalidate() {
+            synchronized (this) {
+                mGeneration++;
+                mCache.evictAll();
+            }
+            for (Runnable listener : mInvalidationListeners) {
+                listener.run();
+            }
+        }
+
+        Stats stats() {
+            return new Stats(mCache.hitCount(), mCache.missCount(), mCache.evictionCount(),
+                    mCache.size());
+        }
+    }
+
+    /**
+     * Emits the cached value synchronously when it becomes active and there is one, otherwise
+     * loads it on the query executor and caches it. Reloads while active whenever the table is
+     * invalidated.
+     */
+    private class CachedLiveData<V> extends LiveData<V> {
+
+        private final Region<V> mRegion;
+
+        private final int mKey;
+
+        private final Callable<V> mLoader;
+
+        private final Runnable mReload = this::load;
+
+        CachedLiveData(Region<V> region, int key, Callable<V> loader) {
+            mRegion = region;
+            mKey = key;
+            mLoader = loader;
+        }
+
+        @Override
+        protected void onActive() {
+            mRegion.mInvalidationListeners.add(mReload);
+            load();
+        }
+
+        @Override
+        protected void onInactive() {
+            mRegion.mInvalidationListeners.remove(mReload);
+        }
+
+        private void load() {
+            V cached = mRegion.get(mKey);
+            if (cached != null) {
+                if (Looper.myLooper() == Looper.getMainLooper()) {
+                    setValue(cached);
+                } else {
+                    postValue(cached);
+                }
+                return;
+            }
+            mExecutor.execute(() -> {
+                int generation = mRegion.generation();
+                V value;
+                try {
+                    value = mLoader.call();
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to load " + mKey, e);
+                }
+                if (value != null) {
+                    mRegion.putIfCurrent(mKey, value, generation);
+                }
+                postValue(value);
+            });
+        }
+    }
+}
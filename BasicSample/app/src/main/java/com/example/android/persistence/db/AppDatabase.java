@@ -54,12 +54,46 @@ public abstract class AppDatabase extends RoomDatabase { //데이터베이스 
 
     private final MutableLiveData<Boolean> mIsDatabaseCreated = new MutableLiveData<>();
 
-    public static AppDatabase getInstance(final Context context, final AppExecutors executors) { //싱글톤
+    /**
+     * How the database is populated the first time the app runs.
+     */
+    public enum Population {
+        /**
+         * Copy the prebuilt database from {@link #PREPACKAGED_DATABASE_ASSET}. Room opens it
+         * directly, so nothing is generated or inserted at startup.
+         */
+        PREPACKAGED,
+        /**
+         * Generate random products and comments with {@link DataGenerator} and insert them on
+         * first launch.
+         */
+        GENERATED
+    }
+
+    /**
+     * Prebuilt database used by {@link Population#PREPACKAGED}, built by
+     * {@code scripts/generate_prepackaged_db.py} from the exported schema.
+     */
+    @VisibleForTesting
+    public static final String PREPACKAGED_DATABASE_ASSET = "database/basic-sample.db";
+
+    public static AppDatabase getInstance(final Context context, final AppExecutors executors) {
+        return getInstance(context, executors, Population.PREPACKAGED);
+    }
+
+    /**
+     * Returns the database, building it with the given population the first time this is
+     * called. Later calls return the same instance whatever population they ask for.
+     */
+    public static AppDatabase getInstance(final Context context, final AppExecutors executors,
+            final Population population) { //싱글톤
         if (sInstance == null) {
             synchronized (AppDatabase.class) {
                 if (sInstance == null) {
-                    sInstance = buildDatabase(context.getApplicationContext(), executors);
-                    sInstance.updateDatabaseCreated(context.getApplicationContext());
+                    sInstance = buildDatabase(context.getApplicationContext(), executors,
+                            population);
+                    sInstance.updateDatabaseCreated(context.getApplicationContext(), executors,
+                            population);
                 }
             }
         }
@@ -72,41 +106,57 @@ public abstract class AppDatabase extends RoomDatabase { //데이터베이스 
      * The SQLite database is only created when it's accessed for the first time.
      */
     private static AppDatabase buildDatabase(final Context appContext, //데이터베이스 빌드
-            final AppExecutors executors) {
-        return Room.databaseBuilder(appContext, AppDatabase.class, DATABASE_NAME) //Room 데이터베이스 빌더
-                .addCallback(new Callback() {
-                    @Override
-                    public void onCreate(@NonNull SupportSQLiteDatabase db) { //최초실행시에만 실행됨
-                        super.onCreate(db);
-                        executors.diskIO().execute(() -> {
-                            // Add a delay to simulate a long-running operation
-                            addDelay();
-                            // Generate the data for pre-population
-                            AppDatabase database = AppDatabase.getInstance(appContext, executors);
-
-                            //DataGenerator 사용해서 데이터 generate.
-                            List<ProductEntity> products = DataGenerator.generateProducts();
-                            List<CommentEntity> comments =
-                                    DataGenerator.generateCommentsForProducts(products);
-
-                            insertData(database, products, comments);
-                            // notify that the database was created and it's ready to be used
-                            //MutableLiveData postValue
-                            //PostValue는 백그라운드에서 실행, setValue는 메인 스레드에서 실행. 즉각적으로 값을 바꿔야한다면 setValue 사용.
-                            database.setDatabaseCreated();
-                        });
-                    }
-                })
-            .addMigrations(MIGRATION_1_2)
-            .build();
+            final AppExecutors executors, final Population population) {
+        Builder<AppDatabase> builder =
+                Room.databaseBuilder(appContext, AppDatabase.class, DATABASE_NAME) //Room 데이터베이스 빌더
+                        .addMigrations(MIGRATION_1_2)
+                        // Write-ahead logging lets the readers run while a transaction is open.
+                        // Room picks it by default on most devices, but not on low-RAM ones.
+                        .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                        // Run Room's queries (LiveData, paging) on the reader pool and its
+                        // transactions on the single writer, queued even when they are full.
+                        .setQueryExecutor(executors.roomQuery())
+                        .setTransactionExecutor(executors.roomTransaction());
+        if (population == Population.PREPACKAGED) {
+            return builder.createFromAsset(PREPACKAGED_DATABASE_ASSET).build();
+        }
+        return builder.addCallback(new Callback() {
+            @Override
+            public void onCreate(@NonNull SupportSQLiteDatabase db) { //최초실행시에만 실행됨
+                super.onCreate(db);
+                executors.diskIO().execute(() -> {
+                    // Generate the data for pre-population
+                    AppDatabase database = AppDatabase.getInstance(appContext, executors);
+
+                    //DataGenerator 사용해서 데이터 generate.
+                    List<ProductEntity> products = DataGenerator.generateProducts();
+                    List<CommentEntity> comments =
+                            DataGenerator.generateCommentsForProducts(products);
+
+                    insertData(database, products, comments);
+                    // notify that the database was created and it's ready to be used
+                    //MutableLiveData postValue
+                    //PostValue는 백그라운드에서 실행, setValue는 메인 스레드에서 실행. 즉각적으로 값을 바꿔야한다면 setValue 사용.
+                    database.setDatabaseCreated();
+                });
+            }
+        }).build();
     }
 
     /**
      * Check whether the database already exists and expose it via {@link #getDatabaseCreated()}
      */
-    private void updateDatabaseCreated(final Context context) {
+    private void updateDatabaseCreated(final Context context, final AppExecutors executors,
+            final Population population) {
         if (context.getDatabasePath(DATABASE_NAME).exists()) {
             setDatabaseCreated();
+        } else if (population == Population.PREPACKAGED) {
+            // Opening the database copies the asset; once it is open the data is there. The
+            // product list waits for this.
+            executors.diskRead().execute(() -> {
+                getOpenHelper().getWritableDatabase();
+                setDatabaseCreated();
+            });
         }
     }
 
@@ -122,13 +172,6 @@ public abstract class AppDatabase extends RoomDatabase { //데이터베이스 
         });
     }
 
-    private static void addDelay() {
-        try {
-            Thread.sleep(4000);
-        } catch (InterruptedException ignored) {
-        }
-    }
-
     public LiveData<Boolean> getDatabaseCreated() { //DataRepository에서 호출됨
         return mIsDatabaseCreated;
     }
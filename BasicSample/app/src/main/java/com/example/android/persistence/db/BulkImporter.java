@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.Executor;
+
+/**
+ * Streams products and comments into the database.
+ * <p>
+ * The input is JSON lines, one object per row:
+ * <pre>
+ * {"id": 1, "name": "Rubber Chicken", "description": "is fine", "price": 12}
+ * {"productId": 1, "text": "Comment 1", "postedAt": 1500000000000}
+ * </pre>
+ * Rows are read one at a time with a {@link JsonReader} and bound to a single compiled insert
+ * statement, and every {@code chunkSize} rows are committed in their own transaction. Nothing is
+ * accumulated between rows, so peak heap doesn't depend on the size of the input, and readers
+ * only ever wait for one chunk.
+ * <p>
+ * Like the DAO inserts, rows are inserted with {@code OR REPLACE}. Comments have to be imported
+ * after the products they refer to.
+ */
+public class BulkImporter {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private static final String INSERT_PRODUCT = "INSERT OR REPLACE INTO products "
+            + "(`id`, `name`, `description`, `price`) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_COMMENT = "INSERT OR REPLACE INTO comments "
+            + "(`id`, `productId`, `text`, `postedAt`) VALUES (?, ?, ?, ?)";
+
+    private final AppDatabase mDatabase;
+
+    private final Executor mExecutor;
+
+    private final int mChunkSize;
+
+    /**
+     * @param executor executor the import runs on, typically the database's transaction
+     *                 executor so imports are serialized with other writes.
+     */
+    public BulkImporter(@NonNull AppDatabase database, @NonNull Executor executor, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        mDatabase = database;
+        mExecutor = executor;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Imports products from {@code input}, closing it when done.
+     */
+    public LiveData<Progress> importProducts(@NonNull InputStream input) {
+        return runImport(input, INSERT_PRODUCT, BulkImporter::bindProduct);
+    }
+
+    /**
+     * Imports comments from {@code input}, closing it when done. A missing {@code id} lets
+     * SQLite assign one.
+     */
+    public LiveData<Progress> importComments(@NonNull InputStream input) {
+        return runImport(input, INSERT_COMMENT, BulkImporter::bindComment);
+    }
+
+    private LiveData<Progress> runImport(final InputStream input, final String sql,
+            final RowBinder binder) {
+        final MutableLiveData<Progress> progress = new MutableLiveData<>();
+        mExecutor.execute(() -> {
+            int rowCount = 0;
+            try (JsonReader reader = new JsonReader(
+                    new InputStreamReader(input, "UTF-8"));
+                 SupportSQLiteStatement statement = mDatabase.compileStatement(sql)) {
+                // Lenient mode accepts a stream of top level objects.
+                reader.setLenient(true);
+                int chunk;
+                do {
+                    chunk = mDatabase.runInTransaction(
+                            () -> insertChunk(reader, statement, binder));
+                    rowCount += chunk;
+                    progress.postValue(Progress.running(rowCount));
+                } while (chunk == mChunkSize);
+                progress.postValue(Progress.succeeded(rowCount));
+            } catch (IOException | RuntimeException e) {
+                // Chunks committed before the failure are kept.
+                progress.postValue(Progress.failed(rowCount, e));
+            }
+        });
+        return progress;
+    }
+
+    private int insertChunk(JsonReader reader, SupportSQLiteStatement statement,
+            RowBinder binder) throws IOException {
+        int count = 0;
+        while (count < mChunkSize && reader.peek() != JsonToken.END_DOCUMENT) {
+            statement.clearBindings();
+            binder.bind(reader, statement);
+            statement.executeInsert();
+            count++;
+        }
+        return count;
+    }
+
+    private static void bindProduct(JsonReader reader, SupportSQLiteStatement statement)
+            throws IOException {
+        boolean hasId = false;
+        // price is NOT NULL in the schema.
+        statement.bindLong(4, 0);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    statement.bindLong(1, reader.nextInt());
+                    hasId = true;
+                    break;
+                case "name":
+                    bindNullableString(reader, statement, 2);
+                    break;
+                case "description":
+                    bindNullableString(reader, statement, 3);
+                    break;
+                case "price":
+                    statement.bindLong(4, reader.nextInt());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasId) {
+            throw new IOException("Product without an id");
+        }
+    }
+
+    private static void bindComment(JsonReader reader, SupportSQLiteStatement statement)
+            throws IOException {
+        boolean hasProductId = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    statement.bindLong(1, reader.nextInt());
+                    break;
+                case "productId":
+                    statement.bindLong(2, reader.nextInt());
+                    hasProductId = true;
+                    break;
+                case "text":
+                    bindNullableString(reader, statement, 3);
+                    break;
+                case "postedAt":
+                    // Same representation as DateConverter.
+                    statement.bindLong(4, reader.nextLong());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (!hasProductId) {
+            throw new IOException("Comment without a productId");
+        }
+    }
+
+    private static void bindNullableString(JsonReader reader, SupportSQLiteStatement statement,
+            int index) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, reader.nextString());
+        }
+    }
+
+    private interface RowBinder {
+        void bind(JsonReader reader, SupportSQLiteStatement statement) throws IOException;
+    }
+
+    /**
+     * Progress of an import. {@link #rowCount} is the number of rows committed so far.
+     */
+    public static final class Progress {
+
+        public enum State { RUNNING, SUCCEEDED, FAILED }
+
+        @NonNull
+        public final State state;
+
+        public final int rowCount;
+
+        @Nullable
+        public final Throwable error;
+
+        private Progress(@NonNull State state, int rowCount, @Nullable Throwable error) {
+            this.state = state;
+            this.rowCount = rowCount;
+            this.error = error;
+        }
+
+        static Progress running(int rowCount) {
+            return new Progress(State.RUNNING, rowCount, null);
+        }
+
+        static Progress succeeded(int rowCount) {
+            return new Progress(State.SUCCEEDED, rowCount, null);
+        }
+
+        static Progress failed(int rowCount, Throwable error) {
+            return new Progress(State.FAILED, rowCount, error);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.example.android.persistence.db.dao.CommentDao;
+import com.example.android.persistence.db.entity.CommentEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads the comments of many products at once.
+ * <p>
+ * Instead of one query per product, the ids go into {@code productId IN (...)} queries of at
+ * most {@code chunkSize} ids each, so up to {@link #DEFAULT_CHUNK_SIZE} products cost a single
+ * round-trip. The rows come back ordered by product and are grouped into a {@link SparseArray}
+ * keyed on product id, which avoids boxing the keys.
+ */
+public class CommentBatchLoader {
+
+    /** SQLite's default limit on bound variables in one statement before 3.32. */
+    public static final int DEFAULT_CHUNK_SIZE = 999;
+
+    private final CommentDao mCommentDao;
+
+    private final int mChunkSize;
+
+    public CommentBatchLoader(@NonNull CommentDao commentDao, int chunkSize) {
+        if (chunkSize < 1 || chunkSize > DEFAULT_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be between 1 and "
+                    + DEFAULT_CHUNK_SIZE + ": " + chunkSize);
+        }
+        mCommentDao = commentDao;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the comments of each of {@code productIds}, in id order. Every requested product
+     * has an entry, an empty list if it has no comments.
+     */
+    @WorkerThread
+    @NonNull
+    public SparseArray<List<CommentEntity>> load(@NonNull int... productIds) {
+        final int[] ids = distinctSorted(productIds);
+        final SparseArray<List<CommentEntity>> comments = new SparseArray<>(ids.length);
+        // Keys are appended in increasing order, which SparseArray does without shifting.
+        for (int id : ids) {
+            comments.append(id, new ArrayList<>());
+        }
+        final List<Integer> chunk = new ArrayList<>(Math.min(mChunkSize, ids.length));
+        for (int start = 0; start < ids.length; start += mChunkSize) {
+            chunk.clear();
+            for (int i = start; i < Math.min(start + mChunkSize, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            int productId = 0;
+            List<CommentEntity> group = null;
+            for (CommentEntity comment : mCommentDao.loadCommentsForProductsSync(chunk)) {
+                if (group == null || comment.getProductId() != productId) {
+                    productId = comment.getProductId();
+                    group = comments.get(productId);
+                }
+                group.add(comment);
+            }
+        }
+        return comments;
+    }
+
+    private static int[] distinctSorted(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link LiveData} that computes its value on an executor when it becomes active, and computes
+ * it again whenever one of the observed tables changes while it stays active.
+ * <p>
+ * This is what Room generates for DAO methods returning LiveData, for values that are
+ * assembled from more than one query. Unlike Room's, a computation that is still running when
+ * the LiveData becomes inactive is cancelled, so a caller switching to another source (e.g.
+ * with {@code switchMap}) doesn't keep the executor busy with a result nobody will see.
+ * <p>
+ * As in Room's, one computation runs at a time, and invalidations that arrive while it runs
+ * lead to a single new one, so an older value is never posted after a newer one. A failed
+ * computation is logged and the LiveData keeps its value until the next invalidation.
+ */
+public class InvalidationLiveData<T> extends LiveData<T> {
+
+    private static final String TAG = "InvalidationLiveData";
+
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final Executor mExecutor;
+
+    private final Computation<T> mCompute;
+
+    private final InvalidationTracker.Observer mObserver;
+
+    private final AtomicBoolean mActive = new AtomicBoolean(false);
+
+    private final AtomicBoolean mInvalid = new AtomicBoolean(true);
+
+    private final AtomicBoolean mComputing = new AtomicBoolean(false);
+
+    private final Object mObserverLock = new Object();
+
+    private boolean mObserving;
+
+    /** The signal of the computation that is running, if any. */
+    private volatile CancellationSignal mCancellationSignal;
+
+    public InvalidationLiveData(@NonNull AppDatabase database, @NonNull Executor executor,
+            @NonNull Computation<T> compute, @NonNull String... tables) {
+        mInvalidationTracker = database.getInvalidationTracker();
+        mExecutor = executor;
+        mCompute = compute;
+        mObserver = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> invalidated) {
+                mInvalid.set(true);
+                if (mActive.get()) {
+                    mExecutor.execute(mRefresh);
+                }
+            }
+        };
+    }
+
+    @Override
+    protected void onActive() {
+        mActive.set(true);
+        // Changes made while inactive weren't observed.
+        mInvalid.set(true);
+        mExecutor.execute(mSyncObserver);
+        mExecutor.execute(mRefresh);
+    }
+
+    @Override
+    protected void onInactive() {
+        mActive.set(false);
+        CancellationSignal cancellationSignal = mCancellationSignal;
+        if (cancellationSignal != null) {
+            cancellationSignal.cancel();
+        }
+        mExecutor.execute(mSyncObserver);
+    }
+
+    /**
+     * Adds or removes the invalidation observer to match the current state. Runs on the
+     * executor because adding an observer can touch the database.
+     */
+    private final Runnable mSyncObserver = () -> {
+        synchronized (mObserverLock) {
+            boolean active = mActive.get();
+            if (active && !mObserving) {
+                mInvalidationTracker.addObserver(mObserver);
+            } else if (!active && mObserving) {
+                mInvalidationTracker.removeObserver(mObserver);
+            }
+            mObserving = active;
+        }
+    };
+
+    private final Runnable mRefresh = () -> {
+        boolean ran;
+        do {
+            ran = false;
+            if (mComputing.compareAndSet(false, true)) {
+                ran = true;
+                boolean computed = false;
+                try {
+                    T value = null;
+                    while (mActive.get() && mInvalid.compareAndSet(true, false)) {
+                        CancellationSignal cancellationSignal = new CancellationSignal();
+                        mCancellationSignal = cancellationSignal;
+                        try {
+                            value = mCompute.compute(cancellationSignal);
+                            computed = !cancellationSignal.isCanceled();
+                        } catch (OperationCanceledException e) {
+                            // Became inactive in the meantime. If it is active again, the check below
+                            // computes a fresh value.
+                            computed = false;
+                        } catch (Exception e) {
+                            Log.e(TAG, "Failed to compute the value", e);
+                            computed = false;
+                        }
+                        if (!computed) {
+                            break;
+                        }
+                    }
+                    if (computed) {
+                        postValue(value);
+                    }
+                } finally {
+                    mCancellationSignal = null;
+                    mComputing.set(false);
+                }
+            }
+            // A refresh that arrived while this one held mComputing gave up, e.g. after
+            // onInactive cancelled this computation and onActive invalidated again, so check
+            // whether there is work left, whether or not this run computed a value.
+        } while (ran && mActive.get() && mInvalid.get());
+    };
+
+    /**
+     * Computes the value. Long computations should check the signal and give up with an
+     * {@link OperationCanceledException} once it is cancelled.
+     */
+    public interface Computation<T> {
+        T compute(@NonNull CancellationSignal cancellationSignal) throws Exception;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+
+import com.example.android.persistence.db.dao.ProductDao;
+import com.example.android.persistence.db.entity.ProductEntity;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import kotlin.Unit;
+
+/**
+ * {@link androidx.paging.PagingSource} over the products table that pages by product id.
+ * <p>
+ * Unlike LIMIT/OFFSET paging, every page is a seek on the primary key index followed by a short
+ * range scan, so loading a page costs the same at row 10 as at row 500,000. The key of a page is
+ * the id of the row it is anchored on: refresh loads ids {@code >= key}, append loads ids
+ * {@code > key} and prepend loads ids {@code < key}.
+ */
+public class ProductPagingSource extends ListenableFuturePagingSource<Integer, ProductEntity> {
+
+    private final ProductDao mProductDao;
+
+    private final Executor mExecutor;
+
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final InvalidationTracker.Observer mObserver;
+
+    private final AtomicBoolean mObserverRegistered = new AtomicBoolean(false);
+
+    @Nullable
+    private final PageLoadedListener mPageLoadedListener;
+
+    public ProductPagingSource(@NonNull AppDatabase database, @NonNull Executor executor) {
+        this(database, executor, null);
+    }
+
+    /**
+     * @param pageLoadedListener called in a separate task on {@code executor} with the products
+     *                           of every page once the page has been handed to the Pager, e.g.
+     *                           to prefetch what the products on screen will need next.
+     */
+    public ProductPagingSource(@NonNull AppDatabase database, @NonNull Executor executor,
+            @Nullable PageLoadedListener pageLoadedListener) {
+        mProductDao = database.productDao();
+        mExecutor = executor;
+        mPageLoadedListener = pageLoadedListener;
+        mInvalidationTracker = database.getInvalidationTracker();
+        mObserver = new InvalidationTracker.Observer("products") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        registerInvalidatedCallback(() -> {
+            mInvalidationTracker.removeObserver(mObserver);
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Integer, ProductEntity>> loadFuture(
+            @NonNull LoadParams<Integer> params) {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            mExecutor.execute(() -> {
+                LoadResult.Page<Integer, ProductEntity> page;
+                try {
+                    page = loadPage(params);
+                } catch (RuntimeException e) {
+                    completer.set(new LoadResult.Error<>(e));
+                    return;
+                }
+                completer.set(page);
+                if (mPageLoadedListener != null && !page.getData().isEmpty()) {
+                    // A task of its own, so the next page load doesn't queue behind the listener.
+                    final List<ProductEntity> products = page.getData();
+                    mExecutor.execute(() -> mPageLoadedListener.onPageLoaded(products));
+                }
+            });
+            return "ProductPagingSource.loadFuture";
+        });
+    }
+
+    @Nullable
+    @Override
+    public Integer getRefreshKey(@NonNull PagingState<Integer, ProductEntity> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        ProductEntity anchor = state.closestItemToPosition(anchorPosition);
+        return anchor == null ? null : anchor.getId();
+    }
+
+    private LoadResult.Page<Integer, ProductEntity> loadPage(LoadParams<Integer> params) {
+        // Registering touches the database, so it is done lazily on the executor rather than in
+        // the constructor, which runs on whatever thread the Pager asked for a new source.
+        if (mObserverRegistered.compareAndSet(false, true)) {
+            mInvalidationTracker.addObserver(mObserver);
+        }
+
+        final Integer key = params.getKey();
+        final int limit = params.getLoadSize();
+
+        if (params instanceof LoadParams.Prepend) {
+            List<ProductEntity> products = mProductDao.loadProductsBefore(key, limit);
+            Collections.reverse(products);
+            return new LoadResult.Page<>(products,
+                    products.size() < limit ? null : firstId(products),
+                    products.isEmpty() ? null : key);
+        }
+
+        if (params instanceof LoadParams.Append) {
+            List<ProductEntity> products = mProductDao.loadProductsAfter(key, limit);
+            return new LoadResult.Page<>(products,
+                    products.isEmpty() ? null : key,
+                    products.size() < limit ? null : lastId(products));
+        }
+
+        // Refresh: anchor on the key if there is one, otherwise start at the top of the table.
+        List<ProductEntity> products = mProductDao.loadProductsFrom(
+                key == null ? Integer.MIN_VALUE : key, limit);
+        Integer prevKey;
+        if (key == null) {
+            prevKey = null;
+        } else {
+            prevKey = products.isEmpty() ? key : firstId(products);
+        }
+        return new LoadResult.Page<>(products, prevKey,
+                products.size() < limit ? null : lastId(products));
+    }
+
+    /**
+     * Notified of every page this source loads.
+     */
+    public interface PageLoadedListener {
+        void onPageLoaded(@NonNull List<ProductEntity> products);
+    }
+
+    private static int firstId(List<ProductEntity> products) {
+        return products.get(0).getId();
+    }
+
+    private static int lastId(List<ProductEntity> products) {
+        return products.get(products.size() - 1).getId();
+    }
+}
@@ -33,6 +33,14 @@ public interface CommentDao {
     @Query("SELECT * FROM comments where productId = :productId")
     List<CommentEntity> loadCommentsSync(int productId);
 
+    /**
+     * Comments of all the given products, grouped by product. Uses the productId index; callers
+     * have to keep {@code productIds} under SQLite's bound variable limit, see
+     * {@link com.example.android.persistence.db.CommentBatchLoader}.
+     */
+    @Query("SELECT * FROM comments WHERE productId IN (:productIds) ORDER BY productId, id")
+    List<CommentEntity> loadCommentsForProductsSync(List<Integer> productIds);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<CommentEntity> comments);
 }
@@ -16,12 +16,15 @@
 
 package com.example.android.persistence.db.dao;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.search.ProductSearchResult;
 
 import java.util.List;
 
@@ -33,6 +36,26 @@ public interface ProductDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<ProductEntity> products);
 
+    /**
+     * Keyset page starting at {@code startId} (inclusive), used for the initial load of a
+     * {@link com.example.android.persistence.db.ProductPagingSource}.
+     */
+    @Query("SELECT * FROM products WHERE id >= :startId ORDER BY id ASC LIMIT :limit")
+    List<ProductEntity> loadProductsFrom(int startId, int limit);
+
+    /**
+     * Keyset page of the products following {@code afterId}. Seeks on the primary key index so
+     * the cost doesn't depend on how deep into the table the page is.
+     */
+    @Query("SELECT * FROM products WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<ProductEntity> loadProductsAfter(int afterId, int limit);
+
+    /**
+     * Keyset page of the products preceding {@code beforeId}, in descending id order.
+     */
+    @Query("SELECT * FROM products WHERE id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<ProductEntity> loadProductsBefore(int beforeId, int limit);
+
     @Query("select * from products where id = :productId")
     LiveData<ProductEntity> loadProduct(int productId);
 
@@ -42,4 +65,26 @@ public interface ProductDao {
     @Query("SELECT products.* FROM products JOIN productsFts ON (products.id = productsFts.rowid) "
         + "WHERE productsFts MATCH :query")
     LiveData<List<ProductEntity>> searchAllProducts(String query);
+
+    /**
+     * First step of {@link com.example.android.persistence.db.search.ProductSearch}: the ids of
+     * all the matching products, in column 0, with the statistics needed to rank them, in
+     * column 1. A cursor, so the matches are ranked as they are read rather than loaded all at
+     * once. The caller closes it.
+     */
+    @Query("SELECT rowid, matchinfo(productsFts, 'pcnalx') AS matchinfo FROM productsFts "
+        + "WHERE productsFts MATCH :match")
+    Cursor searchCandidates(String match);
+
+    /**
+     * Second step of {@link com.example.android.persistence.db.search.ProductSearch}: the
+     * products for the best ranked ids, with the matched terms highlighted in a snippet, between
+     * {@code highlightStart} and {@code highlightEnd}.
+     */
+    @Query("SELECT products.*, "
+        + "snippet(productsFts, :highlightStart, :highlightEnd, '...', -1, 10) AS snippet "
+        + "FROM products JOIN productsFts ON (products.id = productsFts.rowid) "
+        + "WHERE productsFts MATCH :match AND productsFts.rowid IN (:ids)")
+    List<ProductSearchResult> loadSearchResults(String match, List<Integer> ids,
+            String highlightStart, String highlightEnd);
 }
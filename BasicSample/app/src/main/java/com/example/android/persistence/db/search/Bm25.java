@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Okapi BM25 computed from an FTS4 {@code matchinfo(table, 'pcnalx')} blob.
+ * <p>
+ * FTS4 has no built-in ranking function and the framework doesn't let us register one, so the
+ * statistics SQLite already gathered for the match are decoded and scored here. The blob is an
+ * array of native byte order unsigned 32-bit ints: phrase count {@code p}, column count
+ * {@code c}, row count {@code n}, the average token count of each column, the token count of
+ * each column in this row, and for each phrase and column the hits in this row, the hits in all
+ * rows and the number of rows with a hit.
+ */
+final class Bm25 {
+
+    private static final double K1 = 1.2;
+
+    private static final double B = 0.75;
+
+    /** Keeps very common terms from scoring zero or negative. */
+    private static final double MIN_IDF = 1e-6;
+
+    private Bm25() {
+    }
+
+    /**
+     * @param columnWeights weight of each FTS column in declaration order, columns past the end
+     *                      of the array weigh 1.
+     */
+    static double score(byte[] matchinfo, double[] columnWeights) {
+        IntBuffer info = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        final int phraseCount = info.get(0);
+        final int columnCount = info.get(1);
+        final int rowCount = info.get(2);
+        final int averageLengthOffset = 3;
+        final int lengthOffset = averageLengthOffset + columnCount;
+        final int hitsOffset = lengthOffset + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                double weight = column < columnWeights.length ? columnWeights[column] : 1;
+                int hits = hitsOffset + 3 * (phrase * columnCount + column);
+                int hitsInRow = info.get(hits);
+                if (weight == 0 || hitsInRow == 0) {
+                    continue;
+                }
+                int rowsWithHits = info.get(hits + 2);
+                double idf = Math.max(MIN_IDF,
+                        Math.log((rowCount - rowsWithHits + 0.5) / (rowsWithHits + 0.5)));
+                double averageLength = Math.max(1, info.get(averageLengthOffset + column));
+                double length = info.get(lengthOffset + column);
+                double tf = hitsInRow * (K1 + 1)
+                        / (hitsInRow + K1 * (1 - B + B * length / averageLength));
+                score += weight * idf * tf;
+            }
+        }
+        return score;
+    }
+}
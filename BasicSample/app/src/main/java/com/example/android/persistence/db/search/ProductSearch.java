@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.search;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.os.CancellationSignal;
+
+import com.example.android.persistence.db.dao.ProductDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranked full text search over the products.
+ * <p>
+ * A search runs in two queries. The first matches {@link SearchQuery#toMatchExpression} against
+ * {@code productsFts} and returns only the row ids with their match statistics. Every match is
+ * scored with {@link Bm25} as it is read, keeping the best {@code limit} so far, so memory stays
+ * bounded however broad the query is. The second loads the products and highlighted snippets for
+ * those. Matches in the name weigh more than matches in the description.
+ */
+public class ProductSearch {
+
+    public static final int DEFAULT_LIMIT = 50;
+
+    /** Keeps the id list of the second query well under SQLite's bound variable limit. */
+    public static final int MAX_LIMIT = 500;
+
+    /** How many candidates are scored between two checks for cancellation. */
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+    /** Weights of the name and description columns of {@code productsFts}. */
+    private static final double[] COLUMN_WEIGHTS = {2.0, 1.0};
+
+    private final ProductDao mProductDao;
+
+    public ProductSearch(@NonNull ProductDao productDao) {
+        mProductDao = productDao;
+    }
+
+    /**
+     * Returns up to {@code limit} products matching {@code text}, best match first.
+     */
+    @WorkerThread
+    @NonNull
+    public List<ProductSearchResult> search(@Nullable CharSequence text, int limit) {
+        return search(text, limit, null);
+    }
+
+    /**
+     * Same as {@link #search(CharSequence, int)}, but gives up with an
+     * {@link androidx.core.os.OperationCanceledException} between its steps once
+     * {@code cancellationSignal} is cancelled.
+     */
+    @WorkerThread
+    @NonNull
+    public List<ProductSearchResult> search(@Nullable CharSequence text, int limit,
+            @Nullable CancellationSignal cancellationSignal) {
+        final String match = SearchQuery.toMatchExpression(text);
+        if (match == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        limit = Math.min(limit, MAX_LIMIT);
+
+        // Min-heap holding the best `limit` candidates seen so far, the worst one on top.
+        final PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, Candidate.WORST_FIRST);
+        final Cursor cursor = mProductDao.searchCandidates(match);
+        try {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                if (count++ % CANCELLATION_CHECK_INTERVAL == 0) {
+                    throwIfCanceled(cancellationSignal);
+                }
+                final Candidate candidate = new Candidate(cursor.getInt(0),
+                        Bm25.score(cursor.getBlob(1), COLUMN_WEIGHTS));
+                if (best.size() < limit) {
+                    best.add(candidate);
+                } else if (Candidate.WORST_FIRST.compare(best.peek(), candidate) < 0) {
+                    best.poll();
+                    best.add(candidate);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (best.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Map<Integer, Double> scoresById = new HashMap<>(best.size() * 2);
+        final List<Integer> ids = new ArrayList<>(best.size());
+        for (Candidate candidate : best) {
+            scoresById.put(candidate.mId, candidate.mScore);
+            ids.add(candidate.mId);
+        }
+
+        throwIfCanceled(cancellationSignal);
+        final List<ProductSearchResult> results = mProductDao.loadSearchResults(match, ids,
+                ProductSearchResult.HIGHLIGHT_START, ProductSearchResult.HIGHLIGHT_END);
+        for (ProductSearchResult result : results) {
+            Double score = scoresById.get(result.getProduct().getId());
+            result.setScore(score == null ? 0 : score);
+        }
+        Collections.sort(results, (a, b) -> {
+            int byScore = Double.compare(b.getScore(), a.getScore());
+            return byScore != 0 ? byScore
+                    : Integer.compare(a.getProduct().getId(), b.getProduct().getId());
+        });
+        return results;
+    }
+
+    /**
+     * A match that was scored but not loaded yet.
+     */
+    private static final class Candidate {
+
+        /** Lower scores first, and of equal scores the higher id, which sorts last in results. */
+        static final Comparator<Candidate> WORST_FIRST = (a, b) -> {
+            int byScore = Double.compare(a.mScore, b.mScore);
+            return byScore != 0 ? byScore : Integer.compare(b.mId, a.mId);
+        };
+
+        final int mId;
+
+        final double mScore;
+
+        Candidate(int id, double score) {
+            mId = id;
+            mScore = score;
+        }
+    }
+
+    private static void throwIfCanceled(@Nullable CancellationSignal cancellationSignal) {
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.search;
+
+import androidx.room.Embedded;
+import androidx.room.Ignore;
+
+import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.model.Product;
+
+/**
+ * A ranked search hit: the product, a snippet of the matching text with the matched terms
+ * wrapped in {@link #HIGHLIGHT_START} and {@link #HIGHLIGHT_END}, and its BM25 score.
+ * <p>
+ * It is a {@link Product} itself, so that results can be listed like products.
+ */
+public class ProductSearchResult implements Product {
+
+    public static final String HIGHLIGHT_START = "<b>";
+
+    public static final String HIGHLIGHT_END = "</b>";
+
+    @Embedded
+    private ProductEntity product;
+
+    private String snippet;
+
+    @Ignore
+    private double score;
+
+    public ProductEntity getProduct() {
+        return product;
+    }
+
+    public void setProduct(ProductEntity product) {
+        this.product = product;
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public void setSnippet(String snippet) {
+        this.snippet = snippet;
+    }
+
+    @Override
+    public int getId() {
+        return product.getId();
+    }
+
+    @Override
+    public String getName() {
+        return product.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return product.getDescription();
+    }
+
+    @Override
+    public int getPrice() {
+        return product.getPrice();
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    void setScore(double score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.search;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns what the user typed into an FTS4 {@code MATCH} expression.
+ * <p>
+ * The text is split into terms the same way the {@code simple} tokenizer splits the indexed
+ * text: runs of ASCII letters and digits, plus any character at or above U+0080. Every term
+ * becomes a prefix query and the terms are ANDed, so {@code "rub chick"} matches
+ * "Rubber Chicken". Because only term characters survive, user input can't inject FTS syntax
+ * such as quotes, {@code -} or {@code NEAR}.
+ */
+public final class SearchQuery {
+
+    /** Further terms are ignored, they only make the query slower without narrowing it much. */
+    static final int MAX_TERMS = 8;
+
+    private SearchQuery() {
+    }
+
+    /**
+     * Splits {@code text} into lower case terms, at most {@link #MAX_TERMS} of them.
+     */
+    @NonNull
+    public static List<String> tokenize(@Nullable CharSequence text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length() && terms.size() < MAX_TERMS; i++) {
+            char c = text.charAt(i);
+            if (isTermChar(c)) {
+                // The simple tokenizer only folds ASCII case.
+                term.append(c < 0x80 ? Character.toLowerCase(c) : c);
+            } else if (term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0 && terms.size() < MAX_TERMS) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the prefix {@code MATCH} expression for {@code text}, or null if it has no terms.
+     */
+    @Nullable
+    public static String toMatchExpression(@Nullable CharSequence text) {
+        List<String> terms = tokenize(text);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String term : terms) {
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(term).append('*');
+        }
+        return match.toString();
+    }
+
+    private static boolean isTermChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c >= 0x80;
+    }
+}
@@ -17,12 +17,18 @@
 package com.example.android.persistence.ui;
 
 import android.os.Bundle;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.example.android.persistence.BasicApp;
+import com.example.android.persistence.ExecutorPool;
 import com.example.android.persistence.R;
 import com.example.android.persistence.model.Product;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -49,4 +55,26 @@ public class MainActivity extends AppCompatActivity {
                 .replace(R.id.fragment_container,
                         productFragment, null).commit();
     }
+
+    /**
+     * Adds the executor pool counters to {@code adb shell dumpsys activity
+     * com.example.android.persistence/.ui.MainActivity}.
+     */
+    @Override
+    public void dump(@NonNull String prefix, @Nullable FileDescriptor fd,
+            @NonNull PrintWriter writer, @Nullable String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.print(prefix);
+        writer.println("Executors:");
+        for (ExecutorPool pool : ((BasicApp) getApplication()).getAppExecutors().getPools()) {
+            writer.print(prefix);
+            writer.print("  ");
+            writer.println(pool);
+            for (ExecutorPool.Stats stats : pool.getStats()) {
+                writer.print(prefix);
+                writer.print("    ");
+                writer.println(stats);
+            }
+        }
+    }
 }
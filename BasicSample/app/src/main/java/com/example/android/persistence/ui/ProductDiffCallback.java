@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.ui;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import android.text.TextUtils;
+
+import com.example.android.persistence.db.search.ProductSearchResult;
+import com.example.android.persistence.model.Product;
+
+/**
+ * Diff callback shared by the product adapters.
+ * <p>
+ * The cheap int comparisons run first so the string comparisons are only reached for items
+ * whose id and price are unchanged. When only the price changed, {@link #PAYLOAD_PRICE} is
+ * returned as the change payload so the adapter can rebind the price view alone.
+ */
+class ProductDiffCallback<T extends Product> extends DiffUtil.ItemCallback<T> {
+
+    static final Object PAYLOAD_PRICE = new Object();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull T old, @NonNull T product) {
+        return old.getId() == product.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull T old, @NonNull T product) {
+        return old.getId() == product.getId()
+                && old.getPrice() == product.getPrice()
+                && hasSameText(old, product);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull T old, @NonNull T product) {
+        // Only called when areItemsTheSame is true and areContentsTheSame is false.
+        if (old.getPrice() != product.getPrice() && hasSameText(old, product)) {
+            return PAYLOAD_PRICE;
+        }
+        return null;
+    }
+
+    private static boolean hasSameText(Product old, Product product) {
+        return TextUtils.equals(old.getName(), product.getName())
+                && TextUtils.equals(old.getDescription(), product.getDescription())
+                && TextUtils.equals(snippetOf(old), snippetOf(product));
+    }
+
+    @Nullable
+    private static String snippetOf(Product product) {
+        return product instanceof ProductSearchResult
+                ? ((ProductSearchResult) product).getSnippet() : null;
+    }
+}
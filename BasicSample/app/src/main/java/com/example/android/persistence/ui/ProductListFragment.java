@@ -18,6 +18,7 @@ package com.example.android.persistence.ui;
 
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -29,19 +30,23 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.PagingData;
 
+import com.example.android.persistence.AppExecutors;
+import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.R;
 import com.example.android.persistence.databinding.ListFragmentBinding;
-import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.model.Product;
 import com.example.android.persistence.viewmodel.ProductListViewModel;
 
-import java.util.List;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function0;
 
 public class ProductListFragment extends Fragment {
 
     public static final String TAG = "ProductListFragment";
 
-    private ProductAdapter mProductAdapter;
+    private ProductPagingAdapter mProductAdapter;
 
     private ListFragmentBinding mBinding;
 
@@ -51,7 +56,9 @@ public class ProductListFragment extends Fragment {
             @Nullable Bundle savedInstanceState) {
         mBinding = DataBindingUtil.inflate(inflater, R.layout.list_fragment, container, false);
 
-        mProductAdapter = new ProductAdapter(mProductClickCallback);
+        AppExecutors executors = ((BasicApp) requireActivity().getApplication()).getAppExecutors();
+        mProductAdapter = new ProductPagingAdapter(mProductClickCallback, executors.diff());
+        mProductAdapter.addOnPagesUpdatedListener(mReportFullyDrawn);
         mBinding.productsList.setAdapter(mProductAdapter);
 
         return mBinding.getRoot();
@@ -63,20 +70,35 @@ public class ProductListFragment extends Fragment {
         final ProductListViewModel viewModel =
                 new ViewModelProvider(this).get(ProductListViewModel.class); //상품 리스트에 표출할 데이터를 갖는 ViewModel 생성
 
+        // Search as the user types, the ViewModel waits for typing to pause.
+        mBinding.productsSearchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setQuery(s);
+            }
+        });
         mBinding.productsSearchBtn.setOnClickListener(v -> { //검색 버튼을 누름
             Editable query = mBinding.productsSearchBox.getText(); //검색창에 쓴 텍스트를 가져옴
-            viewModel.setQuery(query); //ViewModel의 SaveStateHandle에 저장
+            viewModel.submitQuery(query); //ViewModel의 SaveStateHandle에 저장하고 바로 검색
         });
 
         subscribeUi(viewModel.getProducts()); // 뷰모델에서 livedata를 받아서 전달
     }
 
-    private void subscribeUi(LiveData<List<ProductEntity>> liveData) {
+    private void subscribeUi(LiveData<PagingData<Product>> liveData) {
         // Update the list when the data changes
         liveData.observe(getViewLifecycleOwner(), myProducts -> { //liveData 관찰
             if (myProducts != null) {
                 mBinding.setIsLoading(false); //데이터바인딩 isLoading 변수값 설정
-                mProductAdapter.setProductList(myProducts); //liveData 값 어댑터에 넘겨서 리스트 데이터 설정
+                mProductAdapter.submitData(getViewLifecycleOwner().getLifecycle(), myProducts); //liveData 값 어댑터에 넘겨서 리스트 데이터 설정
             } else {
                 mBinding.setIsLoading(true);
             }
@@ -86,6 +108,21 @@ public class ProductListFragment extends Fragment {
         });
     }
 
+    /**
+     * Reports when the first products are on screen, so the cold start time to the product list
+     * shows up as "Fully drawn" in logcat and in startup benchmarks.
+     */
+    private final Function0<Unit> mReportFullyDrawn = new Function0<Unit>() {
+        @Override
+        public Unit invoke() {
+            if (mProductAdapter != null && mProductAdapter.getItemCount() > 0) {
+                mProductAdapter.removeOnPagesUpdatedListener(this);
+                requireActivity().reportFullyDrawn();
+            }
+            return Unit.INSTANCE;
+        }
+    };
+
     @Override
     public void onDestroyView() {
         mBinding = null;
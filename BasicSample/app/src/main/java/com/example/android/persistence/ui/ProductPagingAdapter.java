@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.ui;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.databinding.DataBindingUtil;
+import androidx.paging.PagingDataAdapter;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.StyleSpan;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import com.example.android.persistence.R;
+import com.example.android.persistence.databinding.ProductItemBinding;
+import com.example.android.persistence.db.search.ProductSearchResult;
+import com.example.android.persistence.model.Product;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.ExecutorsKt;
+
+/**
+ * Adapter for the paged product list. Pages are diffed on the given diff executor, so only the
+ * pages that are actually loaded are compared and none of it happens on the main thread.
+ * <p>
+ * Search results are listed with their snippet, the matched terms in bold.
+ */
+public class ProductPagingAdapter
+        extends PagingDataAdapter<Product, ProductAdapter.ProductViewHolder> {
+
+    @Nullable
+    private final ProductClickCallback mProductClickCallback;
+
+    /**
+     * @param diffExecutor executor the diffs are computed on, usually
+     *                     {@link com.example.android.persistence.AppExecutors#diff()}.
+     */
+    public ProductPagingAdapter(@Nullable ProductClickCallback clickCallback,
+            @NonNull Executor diffExecutor) {
+        super(new ProductDiffCallback<>(), Dispatchers.getMain(),
+                ExecutorsKt.from(diffExecutor));
+        mProductClickCallback = clickCallback;
+    }
+
+    @Override
+    @NonNull
+    public ProductAdapter.ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+            int viewType) {
+        ProductItemBinding binding = DataBindingUtil
+                .inflate(LayoutInflater.from(parent.getContext()), R.layout.product_item,
+                        parent, false);
+        return new ProductAdapter.ProductViewHolder(binding, mProductClickCallback);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ProductAdapter.ProductViewHolder holder, int position) {
+        // Placeholders are disabled, so the item is only null while a page is being dropped.
+        Product product = getItem(position);
+        holder.bind(product);
+        holder.binding.setSnippet(product instanceof ProductSearchResult
+                ? highlight(((ProductSearchResult) product).getSnippet()) : null);
+        holder.binding.executePendingBindings();
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ProductAdapter.ProductViewHolder holder, int position,
+            @NonNull List<Object> payloads) {
+        Product product = getItem(position);
+        if (product != null && payloads.contains(ProductDiffCallback.PAYLOAD_PRICE)) {
+            holder.bindPrice(product);
+        } else {
+            onBindViewHolder(holder, position);
+        }
+    }
+
+    /**
+     * Turns the highlight markers of a snippet into bold spans.
+     */
+    @Nullable
+    static CharSequence highlight(@Nullable String snippet) {
+        if (snippet == null) {
+            return null;
+        }
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int from = 0;
+        int start;
+        while ((start = snippet.indexOf(ProductSearchResult.HIGHLIGHT_START, from)) >= 0) {
+            int end = snippet.indexOf(ProductSearchResult.HIGHLIGHT_END,
+                    start + ProductSearchResult.HIGHLIGHT_START.length());
+            if (end < 0) {
+                break;
+            }
+            text.append(snippet, from, start);
+            int boldStart = text.length();
+            text.append(snippet, start + ProductSearchResult.HIGHLIGHT_START.length(), end);
+            text.setSpan(new StyleSpan(Typeface.BOLD), boldStart, text.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            from = end + ProductSearchResult.HIGHLIGHT_END.length();
+        }
+        text.append(snippet, from, snippet.length());
+        return text;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+/**
+ * Emits the latest value of a source once it has stopped changing for a while.
+ * <p>
+ * The first value is emitted right away, so state restored after a configuration change or
+ * process death shows up without a delay. Values equal to the last emitted one are dropped.
+ */
+class DebouncedLiveData<T> extends MediatorLiveData<T> {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final long mTimeoutMs;
+
+    private final Runnable mEmit = this::emit;
+
+    private boolean mHasPending;
+
+    private T mPending;
+
+    private boolean mHasEmitted;
+
+    DebouncedLiveData(@NonNull LiveData<T> source, long timeoutMs) {
+        mTimeoutMs = timeoutMs;
+        addSource(source, value -> {
+            mPending = value;
+            mHasPending = true;
+            mHandler.removeCallbacks(mEmit);
+            if (mHasEmitted) {
+                mHandler.postDelayed(mEmit, mTimeoutMs);
+            } else {
+                emit();
+            }
+        });
+    }
+
+    /**
+     * Emits the pending value now instead of waiting for the timeout.
+     */
+    @MainThread
+    void flush() {
+        mHandler.removeCallbacks(mEmit);
+        emit();
+    }
+
+    /**
+     * Drops the pending value.
+     */
+    @MainThread
+    void cancel() {
+        mHandler.removeCallbacks(mEmit);
+        mHasPending = false;
+        mPending = null;
+    }
+
+    private void emit() {
+        if (!mHasPending) {
+            return;
+        }
+        T value = mPending;
+        mHasPending = false;
+        mPending = null;
+        if (mHasEmitted && equal(value, getValue())) {
+            return;
+        }
+        mHasEmitted = true;
+        setValue(value);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
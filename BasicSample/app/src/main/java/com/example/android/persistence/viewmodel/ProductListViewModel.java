@@ -18,27 +18,45 @@ package com.example.android.persistence.viewmodel;
 
 import android.app.Application;
 import android.text.TextUtils;
+import android.util.LruCache;
 
 import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.DataRepository;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.search.ProductSearchResult;
+import com.example.android.persistence.db.search.SearchQuery;
+import com.example.android.persistence.model.Product;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.SavedStateHandle;
 import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import kotlin.jvm.functions.Function1;
 
 public class ProductListViewModel extends AndroidViewModel {
     private static final String QUERY_KEY = "QUERY";
 
+    /** How long typing has to pause before the query is searched. */
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+
+    /** Number of recent searches whose results are kept to show them again right away. */
+    private static final int RECENT_SEARCHES = 10;
+
     private final SavedStateHandle mSavedStateHandler; //뷰모델 상태를 저장하는 SaveStateHandle
     private final DataRepository mRepository;
-    private final LiveData<List<ProductEntity>> mProducts;
+    private final DebouncedLiveData<String> mSearchQuery;
+    private final LruCache<String, List<ProductSearchResult>> mRecentSearches =
+            new LruCache<>(RECENT_SEARCHES);
+    private final LiveData<PagingData<Product>> mProducts;
 
     public ProductListViewModel(@NonNull Application application,
             @NonNull SavedStateHandle savedStateHandle) {
@@ -47,30 +65,92 @@ public class ProductListViewModel extends AndroidViewModel {
 
         mRepository = ((BasicApp) application).getRepository(); //BasicApp을 통해 리포지토리 싱글톤에 액세스
 
-        // Use the savedStateHandle.getLiveData() as the input to switchMap,
-        // allowing us to recalculate what LiveData to get from the DataRepository
-        // based on what query the user has entered
-        mProducts = Transformations.switchMap(
-                savedStateHandle.getLiveData("QUERY", null), //SaveStateHandle에 저장된 LiveData가 switchMap의 두번째 파라미터에 반영됨
-                (Function1<CharSequence, LiveData<List<ProductEntity>>>) query -> { //사용자 쿼리에 따라 LiveData를 가져올 수 있음.
+        // Cache the loaded pages in the ViewModel so they survive configuration changes and
+        // clearing the search doesn't reload the list from the top.
+        final LiveData<PagingData<Product>> pagedProducts = asProducts(PagingLiveData.cachedIn(
+                mRepository.getProductsPaged(), ViewModelKt.getViewModelScope(this)));
+
+        // Search as the user types, but only once typing pauses, and only when the query
+        // changed in a way that matters to the search: "Rub", "rub " and "rub!" are one query.
+        mSearchQuery = new DebouncedLiveData<>(Transformations.map(
+                savedStateHandle.getLiveData(QUERY_KEY, null),
+                (Function1<CharSequence, String>) ProductListViewModel::normalize),
+                SEARCH_DEBOUNCE_MS);
+
+        // switchMap drops the previous search when the query changes, which cancels it if it
+        // is still running.
+        mProducts = Transformations.switchMap(mSearchQuery, //SaveStateHandle에 저장된 쿼리가 switchMap의 두번째 파라미터에 반영됨
+                (Function1<String, LiveData<PagingData<Product>>>) query -> { //사용자 쿼리에 따라 LiveData를 가져올 수 있음.
                     if (TextUtils.isEmpty(query)) { //쿼리가 비어있으면
-                        return mRepository.getProducts(); //상품리스트 모두 가져오기
+                        return pagedProducts; //상품리스트를 페이지 단위로 가져오기
                     }
-                    return mRepository.searchProducts("*" + query + "*"); //쿼리가 비어있지 않으면 검색한 상품만 가져오기
+                    return search(query); //쿼리가 비어있지 않으면 검색한 상품만 가져오기
                 });
     }
 
+    /**
+     * Search results for {@code query}. Results of a recent search are shown right away while
+     * the search runs again, so going back to a previous query doesn't wait for the database
+     * and still ends up up to date.
+     */
+    private LiveData<PagingData<Product>> search(String query) {
+        final MediatorLiveData<PagingData<Product>> results = new MediatorLiveData<>();
+        final List<ProductSearchResult> recent = mRecentSearches.get(query);
+        if (recent != null) {
+            results.setValue(toPagingData(recent));
+        }
+        results.addSource(mRepository.searchProducts(query), searchResults -> {
+            mRecentSearches.put(query, searchResults);
+            results.setValue(toPagingData(searchResults));
+        });
+        return results;
+    }
+
+    /**
+     * The query as the search sees it: its terms, lower case and separated by single spaces.
+     */
+    private static String normalize(CharSequence query) {
+        return TextUtils.join(" ", SearchQuery.tokenize(query));
+    }
+
+    // Search results are small enough to be loaded at once, wrap them in a single page so the
+    // list can use the same adapter. The results keep their snippet for the list to show.
+    private static PagingData<Product> toPagingData(List<ProductSearchResult> results) {
+        return PagingData.from(new ArrayList<Product>(results));
+    }
+
+    // PagingData only hands out its items, so pages of entities are pages of products.
+    @SuppressWarnings("unchecked")
+    private static LiveData<PagingData<Product>> asProducts(
+            LiveData<PagingData<ProductEntity>> products) {
+        return (LiveData<PagingData<Product>>) (LiveData<?>) products;
+    }
+
     public void setQuery(CharSequence query) {
         // Save the user's query into the SavedStateHandle.
         // This ensures that we retain the value across process death
         // and is used as the input into the Transformations.switchMap above
-        mSavedStateHandler.set(QUERY_KEY, query); //SaveStateHandle에 쿼리 저장
+        mSavedStateHandler.set(QUERY_KEY, query == null ? null : query.toString()); //SaveStateHandle에 쿼리 저장
+    }
+
+    /**
+     * Like {@link #setQuery(CharSequence)}, but searches right away instead of waiting for
+     * typing to pause.
+     */
+    public void submitQuery(CharSequence query) {
+        setQuery(query);
+        mSearchQuery.flush();
     }
 
     /**
      * Expose the LiveData Products query so the UI can observe it.
      */
-    public LiveData<List<ProductEntity>> getProducts() { //ProductListFragment에서 호출함
+    public LiveData<PagingData<Product>> getProducts() { //ProductListFragment에서 호출함
         return mProducts;
     }
+
+    @Override
+    protected void onCleared() {
+        mSearchQuery.cancel();
+    }
 }
@@ -0,0 +1,97 @@
+#!/usr/bin/env python3
+#
+# Copyright 2017, The Android Open Source Project
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Builds app/src/main/assets/database/basic-sample.db.
+
+The schema is read from the exported Room schema, so the prepackaged database always matches
+the version AppDatabase expects. The data follows DataGenerator, with a fixed seed and fixed
+dates so the asset is reproducible. Run it again after bumping the database version:
+
+    python3 scripts/generate_prepackaged_db.py
+"""
+
+import json
+import os
+import random
+import sqlite3
+
+ROOT = os.path.dirname(os.path.dirname(os.path.abspath(__file__)))
+SCHEMAS = os.path.join(ROOT, "app", "schemas", "com.example.android.persistence.db.AppDatabase")
+OUTPUT = os.path.join(ROOT, "app", "src", "main", "assets", "database", "basic-sample.db")
+
+FIRST = ["Special edition", "New", "Cheap", "Quality", "Used"]
+SECOND = ["Three-headed Monkey", "Rubber Chicken", "Pint of Grog", "Monocle"]
+DESCRIPTION = ["is finally here", "is recommended by Stan S. Stanman",
+               "is the best sold product on Mêlée Island", "is \U0001F4AF",
+               "is ❤️", "is fine"]
+COMMENTS = ["Comment 1", "Comment 2", "Comment 3", "Comment 4", "Comment 5", "Comment 6"]
+
+# 2017-01-01T00:00:00Z, comments are dated relative to it.
+BASE_TIME_MILLIS = 1483228800000
+DAY_MILLIS = 24 * 60 * 60 * 1000
+HOUR_MILLIS = 60 * 60 * 1000
+
+
+def latest_schema():
+    versions = sorted(int(name[:-len(".json")]) for name in os.listdir(SCHEMAS))
+    with open(os.path.join(SCHEMAS, "%d.json" % versions[-1])) as f:
+        return json.load(f)["database"]
+
+
+def create_schema(db, schema):
+    for entity in schema["entities"]:
+        db.execute(entity["createSql"].replace("${TABLE_NAME}", entity["tableName"]))
+        for index in entity.get("indices", []):
+            db.execute(index["createSql"].replace("${TABLE_NAME}", entity["tableName"]))
+        for trigger in entity.get("contentSyncTriggers", []):
+            db.execute(trigger)
+    for query in schema["setupQueries"]:
+        db.execute(query)
+    db.execute("PRAGMA user_version = %d" % schema["version"])
+
+
+def insert_data(db):
+    rnd = random.Random(42)
+    products = []
+    for i, first in enumerate(FIRST):
+        for j, second in enumerate(SECOND):
+            name = first + " " + second
+            product_id = len(FIRST) * i + j + 1
+            products.append((product_id, name))
+            db.execute("INSERT INTO products (id, name, description, price) VALUES (?, ?, ?, ?)",
+                       (product_id, name, name + " " + DESCRIPTION[j], rnd.randrange(240)))
+    for product_id, name in products:
+        comments_number = rnd.randrange(5) + 1
+        for i in range(comments_number):
+            posted_at = (BASE_TIME_MILLIS - (comments_number - i) * DAY_MILLIS
+                         + i * HOUR_MILLIS)
+            db.execute("INSERT INTO comments (productId, text, postedAt) VALUES (?, ?, ?)",
+                       (product_id, COMMENTS[i] + " for " + name, posted_at))
+
+
+def main():
+    if os.path.exists(OUTPUT):
+        os.remove(OUTPUT)
+    db = sqlite3.connect(OUTPUT)
+    with db:
+        create_schema(db, latest_schema())
+        insert_data(db)
+    db.execute("VACUUM")
+    db.close()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository
+
+import androidx.annotation.MainThread
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MediatorLiveData
+import com.android.example.github.AppExecutors
+import com.android.example.github.api.ApiResponse
+import com.android.example.github.api.ApiSuccessResponse
+import com.android.example.github.testing.OpenForTesting
+import javax.inject.Inject
+import javax.inject.Singleton
+
+/**
+ * Shares the network requests that are in flight between the callers that make the same request
+ * at the same time, e.g. two screens loading the same repo.
+ *
+ * The first caller makes the call and saves its result. The others get the same [ApiResponse],
+ * once it is saved, instead of making the call and the write again. A request is forgotten as
+ * soon as its response arrives, so a later caller makes a new call.
+ */
+@Singleton
+@OpenForTesting
+class InFlightRequests @Inject constructor(private val appExecutors: AppExecutors) {
+
+    // only accessed on the main thread
+    private val requests = HashMap<Key, LiveData<*>>()
+
+    /**
+     * Returns the response of the request with this [key] that is in flight, or makes it with
+     * [createCall] if there is none.
+     *
+     * @param saveCallResult called on the disk IO executor with a successful response, before
+     * it is dispatched.
+     */
+    @MainThread
+    fun <T> fetch(
+        key: Key,
+        createCall: () -> LiveData<ApiResponse<T>>,
+        saveCallResult: (ApiSuccessResponse<T>) -> Unit
+    ): LiveData<ApiResponse<T>> {
+        requests[key]?.let {
+            @Suppress("UNCHECKED_CAST")
+            return it as LiveData<ApiResponse<T>>
+        }
+        val result = MediatorLiveData<ApiResponse<T>>()
+        requests[key] = result
+        val apiResponse = createCall()
+        result.addSource(apiResponse) { response ->
+            result.removeSource(apiResponse)
+            if (response is ApiSuccessResponse) {
+                appExecutors.diskIO().execute {
+                    saveCallResult(response)
+                    appExecutors.mainThread().execute {
+                        complete(key, result, response)
+                    }
+                }
+            } else {
+                complete(key, result, response)
+            }
+        }
+        return result
+    }
+
+    @MainThread
+    private fun <T> complete(
+        key: Key,
+        result: MediatorLiveData<ApiResponse<T>>,
+        response: ApiResponse<T>
+    ) {
+        if (requests[key] === result) {
+            requests.remove(key)
+        }
+        result.value = response
+    }
+
+    /**
+     * Identifies a request by the endpoint it calls, e.g. `repos/{owner}/{name}`, and the
+     * arguments it calls it with.
+     */
+    data class Key(val endpoint: String, val args: List<Any?>)
+}
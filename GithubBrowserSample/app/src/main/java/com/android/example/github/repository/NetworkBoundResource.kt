@@ -33,11 +33,17 @@ import com.android.example.github.vo.Resource
  *
  * You can read more about it in the [Architecture
  * Guide](https://developer.android.com/arch).
+ *
+ * With [inFlightRequests], resources that make the same request, as identified by [requestKey],
+ * at the same time share a single call and a single save of its result.
  * @param <ResultType>
  * @param <RequestType>
 </RequestType></ResultType> */
 abstract class NetworkBoundResource<ResultType, RequestType>
-@MainThread constructor(private val appExecutors: AppExecutors) {
+@MainThread constructor(
+    private val appExecutors: AppExecutors,
+    private val inFlightRequests: InFlightRequests? = null
+) {
 
     private val result = MediatorLiveData<Resource<ResultType>>()
 
@@ -65,7 +71,15 @@ abstract class NetworkBoundResource<ResultType, RequestType>
     }
 
     private fun fetchFromNetwork(dbSource: LiveData<ResultType>) {
-        val apiResponse = createCall()
+        val inFlight = inFlightRequests
+        val requestKey = inFlight?.let { requestKey() }
+        val apiResponse = if (inFlight == null || requestKey == null) {
+            createCall()
+        } else {
+            inFlight.fetch(requestKey, this::createCall) { response ->
+                saveCallResult(processResponse(response))
+            }
+        }
         // we re-attach dbSource as a new source, it will dispatch its latest value quickly
         result.addSource(dbSource) { newData ->
             setValue(Resource.loading(newData))
@@ -74,7 +88,12 @@ abstract class NetworkBoundResource<ResultType, RequestType>
             result.removeSource(apiResponse)
             result.removeSource(dbSource)
             when (response) {
-                is ApiSuccessResponse -> {
+                is ApiSuccessResponse -> if (requestKey != null) {
+                    // the shared request saved the result before dispatching it
+                    result.addSource(loadFromDb()) { newData ->
+                        setValue(Resource.success(newData))
+                    }
+                } else {
                     appExecutors.diskIO().execute {
                         saveCallResult(processResponse(response))
                         appExecutors.mainThread().execute {
@@ -107,6 +126,13 @@ abstract class NetworkBoundResource<ResultType, RequestType>
 
     protected open fun onFetchFailed() {}
 
+    /**
+     * Identifies the request [createCall] makes, to share it with the resources that make the
+     * same one at the same time. Null, the default, doesn't share it.
+     */
+    @MainThread
+    protected open fun requestKey(): InFlightRequests.Key? = null
+
     fun asLiveData() = result as LiveData<Resource<ResultType>>
 
     @WorkerThread
@@ -48,7 +48,8 @@ class RepoRepository @Inject constructor(
     private val appExecutors: AppExecutors,
     private val db: GithubDb,
     private val repoDao: RepoDao,
-    private val githubService: GithubService
+    private val githubService: GithubService,
+    private val inFlightRequests: InFlightRequests
 ) {
 
     private val repoListRateLimit = RateLimiter<String>(10, TimeUnit.MINUTES)
@@ -74,7 +75,7 @@ class RepoRepository @Inject constructor(
     }
 
     fun loadRepo(owner: String, name: String): LiveData<Resource<Repo>> {
-        return object : NetworkBoundResource<Repo, Repo>(appExecutors) {
+        return object : NetworkBoundResource<Repo, Repo>(appExecutors, inFlightRequests) {
             override fun saveCallResult(item: Repo) {
                 repoDao.insert(item)
             }
@@ -90,11 +91,17 @@ class RepoRepository @Inject constructor(
                 owner = owner,
                 name = name
             )
+
+            override fun requestKey() =
+                InFlightRequests.Key("repos/{owner}/{name}", listOf(owner, name))
         }.asLiveData()
     }
 
     fun loadContributors(owner: String, name: String): LiveData<Resource<List<Contributor>>> {
-        return object : NetworkBoundResource<List<Contributor>, List<Contributor>>(appExecutors) {
+        return object : NetworkBoundResource<List<Contributor>, List<Contributor>>(
+            appExecutors,
+            inFlightRequests
+        ) {
             override fun saveCallResult(item: List<Contributor>) {
                 item.forEach {
                     it.repoName = name
@@ -122,6 +129,9 @@ class RepoRepository @Inject constructor(
             override fun loadFromDb() = repoDao.loadContributors(owner, name)
 
             override fun createCall() = githubService.getContributors(owner, name)
+
+            override fun requestKey() =
+                InFlightRequests.Key("repos/{owner}/{name}/contributors", listOf(owner, name))
         }.asLiveData()
     }
 
@@ -34,11 +34,12 @@ import javax.inject.Singleton
 class UserRepository @Inject constructor(
     private val appExecutors: AppExecutors,
     private val userDao: UserDao,
-    private val githubService: GithubService
+    private val githubService: GithubService,
+    private val inFlightRequests: InFlightRequests
 ) {
 
     fun loadUser(login: String): LiveData<Resource<User>> {
-        return object : NetworkBoundResource<User, User>(appExecutors) {
+        return object : NetworkBoundResource<User, User>(appExecutors, inFlightRequests) {
             override fun saveCallResult(item: User) {
                 userDao.insert(item)
             }
@@ -48,6 +49,8 @@ class UserRepository @Inject constructor(
             override fun loadFromDb() = userDao.findByLogin(login)
 
             override fun createCall() = githubService.getUser(login)
+
+            override fun requestKey() = InFlightRequests.Key("users/{login}", listOf(login))
         }.asLiveData()
     }
 }
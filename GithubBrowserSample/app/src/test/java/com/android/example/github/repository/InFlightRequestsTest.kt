@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.example.github.repository
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import androidx.lifecycle.LiveData
+import androidx.lifecycle.MutableLiveData
+import com.android.example.github.api.ApiResponse
+import com.android.example.github.api.ApiSuccessResponse
+import com.android.example.github.api.GithubService
+import com.android.example.github.db.UserDao
+import com.android.example.github.util.InstantAppExecutors
+import com.android.example.github.util.LiveDataCallAdapterFactory
+import com.android.example.github.util.TestUtil
+import com.android.example.github.util.argumentCaptor
+import com.android.example.github.util.getOrAwaitValue
+import com.android.example.github.vo.Status
+import com.android.example.github.vo.User
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okio.Okio
+import org.hamcrest.CoreMatchers.`is`
+import org.hamcrest.CoreMatchers.instanceOf
+import org.hamcrest.CoreMatchers.not
+import org.hamcrest.CoreMatchers.sameInstance
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import org.mockito.Mockito.`when`
+import org.mockito.Mockito.mock
+import org.mockito.Mockito.verify
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(JUnit4::class)
+class InFlightRequestsTest {
+    @Rule
+    @JvmField
+    val instantExecutorRule = InstantTaskExecutorRule()
+
+    private val appExecutors = InstantAppExecutors()
+
+    private val inFlightRequests = InFlightRequests(appExecutors)
+
+    private val saves = AtomicInteger()
+
+    private lateinit var service: GithubService
+
+    private lateinit var mockWebServer: MockWebServer
+
+    @Before
+    fun createService() {
+        mockWebServer = MockWebServer()
+        service = Retrofit.Builder()
+            .baseUrl(mockWebServer.url("/"))
+            .addConverterFactory(GsonConverterFactory.create())
+            .addCallAdapterFactory(LiveDataCallAdapterFactory())
+            .build()
+            .create(GithubService::class.java)
+    }
+
+    @After
+    fun stopService() {
+        mockWebServer.shutdown()
+    }
+
+    @Test
+    fun sameRequest_sharesOneCall() {
+        enqueueResponse("user-yigit.json")
+
+        val first = fetchUser("yigit")
+        val second = fetchUser("yigit")
+        val responses = awaitValues(first, second)
+
+        assertThat(mockWebServer.requestCount, `is`(1))
+        assertThat(saves.get(), `is`(1))
+        assertThat(responses[0], instanceOf(ApiSuccessResponse::class.java))
+        assertThat(responses[1], sameInstance(responses[0]))
+    }
+
+    @Test
+    fun differentArguments_makeTheirOwnCalls() {
+        enqueueResponse("user-yigit.json")
+        enqueueResponse("user-yigit.json")
+
+        val first = fetchUser("yigit")
+        val second = fetchUser("foo")
+        assertThat(second, not(sameInstance(first)))
+        awaitValues(first, second)
+
+        assertThat(mockWebServer.requestCount, `is`(2))
+        assertThat(saves.get(), `is`(2))
+    }
+
+    @Test
+    fun answeredRequest_isNotShared() {
+        enqueueResponse("user-yigit.json")
+        enqueueResponse("user-yigit.json")
+
+        fetchUser("yigit").getOrAwaitValue()
+        fetchUser("yigit").getOrAwaitValue()
+
+        assertThat(mockWebServer.requestCount, `is`(2))
+        assertThat(saves.get(), `is`(2))
+    }
+
+    @Test
+    fun failedRequest_isNotSaved() {
+        mockWebServer.enqueue(MockResponse().setResponseCode(500).setBody("boom"))
+
+        val first = fetchUser("yigit")
+        val second = fetchUser("yigit")
+        awaitValues(first, second)
+
+        assertThat(mockWebServer.requestCount, `is`(1))
+        assertThat(saves.get(), `is`(0))
+    }
+
+    @Test
+    fun loadUser_twice_fetchesAndSavesOnce() {
+        enqueueResponse("user-yigit.json")
+        val userDao = mock(UserDao::class.java)
+        `when`(userDao.findByLogin("yigit")).thenReturn(MutableLiveData<User>(null))
+        val repository = UserRepository(appExecutors, userDao, service, inFlightRequests)
+
+        // two screens load the same user, which is not in the database
+        val first = repository.loadUser("yigit")
+        val second = repository.loadUser("yigit")
+        awaitValues(first, second) { it.status == Status.SUCCESS }
+
+        assertThat(mockWebServer.requestCount, `is`(1))
+        val inserted = argumentCaptor<User>()
+        // a created user is a workaround for null capture return
+        verify(userDao).insert(inserted.capture() ?: TestUtil.createUser("yigit"))
+        assertThat(inserted.value.login, `is`("yigit"))
+    }
+
+    private fun fetchUser(login: String): LiveData<ApiResponse<User>> {
+        return inFlightRequests.fetch(
+            InFlightRequests.Key("users/{login}", listOf(login)),
+            { service.getUser(login) }
+        ) { saves.incrementAndGet() }
+    }
+
+    /**
+     * Observes all of [liveData] at once, and waits until each emitted a value matching
+     * [predicate].
+     */
+    private fun <T> awaitValues(
+        vararg liveData: LiveData<T>,
+        predicate: (T) -> Boolean = { true }
+    ): List<T> {
+        val latch = CountDownLatch(liveData.size)
+        val values = MutableList<T?>(liveData.size) { null }
+        liveData.forEachIndexed { index, data ->
+            data.observeForever { value ->
+                if (values[index] == null && predicate(value)) {
+                    values[index] = value
+                    latch.countDown()
+                }
+            }
+        }
+        assertThat(latch.await(2, TimeUnit.SECONDS), `is`(true))
+        @Suppress("UNCHECKED_CAST")
+        return values as List<T>
+    }
+
+    private fun enqueueResponse(fileName: String) {
+        val inputStream = javaClass.classLoader!!
+            .getResourceAsStream("api-response/$fileName")
+        val source = Okio.buffer(Okio.source(inputStream))
+        mockWebServer.enqueue(MockResponse().setBody(source.readString(Charsets.UTF_8)))
+    }
+}
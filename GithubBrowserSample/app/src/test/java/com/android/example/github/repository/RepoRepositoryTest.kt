@@ -66,7 +66,8 @@ class RepoRepositoryTest {
         val db = mock(GithubDb::class.java)
         `when`(db.repoDao()).thenReturn(dao)
         `when`(db.runInTransaction(ArgumentMatchers.any())).thenCallRealMethod()
-        repository = RepoRepository(InstantAppExecutors(), db, dao, service)
+        val appExecutors = InstantAppExecutors()
+        repository = RepoRepository(appExecutors, db, dao, service, InFlightRequests(appExecutors))
     }
 
     @Test
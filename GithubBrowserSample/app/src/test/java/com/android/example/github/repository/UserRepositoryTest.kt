@@ -40,7 +40,9 @@ import org.mockito.Mockito.verify
 class UserRepositoryTest {
     private val userDao = mock(UserDao::class.java)
     private val githubService = mock(GithubService::class.java)
-    private val repo = UserRepository(InstantAppExecutors(), userDao, githubService)
+    private val appExecutors = InstantAppExecutors()
+    private val repo =
+        UserRepository(appExecutors, userDao, githubService, InFlightRequests(appExecutors))
 
     @Rule
     @JvmField
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import com.example.android.contentprovidersample.data.CheeseSeeder;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class CheeseSeederTest {
+
+    private static final String[] NAMES = {"A", "B", "C", "D", "E", "F", "G"};
+
+    /** Runs the seeding on the test thread. */
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private SampleDatabase mDatabase;
+
+    @Before
+    public void createDatabase() {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                SampleDatabase.class).build();
+    }
+
+    @After
+    public void closeDatabase() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void seedsEmptyDatabaseInChunks() throws InterruptedException {
+        // Chunks of three so the names span more than one insertAll.
+        final CheeseSeeder seeder = new CheeseSeeder(mDatabase, 3);
+        final List<Integer> seeded = new ArrayList<>();
+        seeder.addListener(new CheeseSeeder.Listener() {
+            @Override
+            public void onSeeded(int count) {
+                seeded.add(count);
+            }
+        });
+        assertThat(seeder.isReady(), is(false));
+
+        seeder.start(DIRECT, NAMES);
+
+        assertThat(seeder.awaitReady(0, TimeUnit.MILLISECONDS), is(true));
+        assertThat(mDatabase.cheese().count(), is(NAMES.length));
+        assertThat(seeded, is(Collections.singletonList(NAMES.length)));
+    }
+
+    @Test
+    public void leavesSeededDatabaseAlone() {
+        new CheeseSeeder(mDatabase, 3).start(DIRECT, NAMES);
+        final CheeseSeeder seeder = new CheeseSeeder(mDatabase, 3);
+        final List<Integer> seeded = new ArrayList<>();
+
+        seeder.start(DIRECT, NAMES);
+        seeder.addListener(new CheeseSeeder.Listener() {
+            @Override
+            public void onSeeded(int count) {
+                seeded.add(count);
+            }
+        });
+
+        assertThat(seeder.isReady(), is(true));
+        assertThat(mDatabase.cheese().count(), is(NAMES.length));
+        assertThat(seeded.isEmpty(), is(true));
+    }
+
+}
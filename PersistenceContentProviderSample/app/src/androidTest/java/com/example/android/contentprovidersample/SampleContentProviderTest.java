@@ -20,15 +20,19 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 
+import android.content.ContentProviderClient;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.RemoteException;
+import android.provider.BaseColumns;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.SmallTest;
@@ -41,6 +45,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 
 @RunWith(AndroidJUnit4.class)
@@ -54,6 +63,8 @@ public class SampleContentProviderTest {
         final Context context = ApplicationProvider.getApplicationContext();
         SampleDatabase.switchToInMemory(context);
         mContentResolver = context.getContentResolver();
+        // Notify right away, so recordChanges() sees each change before its sentinel.
+        setNotificationWindow(0);
     }
 
     @Test
@@ -152,6 +163,267 @@ public class SampleContentProviderTest {
         cursor.close();
     }
 
+    @Test
+    public void cheese_applyBatchNotifiesOnce() throws Exception {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (String name : new String[]{"Peynir", "Queso", "Daigo"}) {
+            operations.add(ContentProviderOperation
+                    .newInsert(SampleContentProvider.URI_CHEESE)
+                    .withValue(Cheese.COLUMN_NAME, name)
+                    .build());
+        }
+        final List<Uri> changes = recordChanges(() ->
+                mContentResolver.applyBatch(SampleContentProvider.AUTHORITY, operations));
+        assertThat(changes, is(Collections.singletonList(SampleContentProvider.URI_CHEESE)));
+    }
+
+    @Test
+    public void cheese_bulkInsertNotifiesOnce() throws Exception {
+        final ContentValues[] values = new ContentValues[1200];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = cheeseWithName("Cheese " + i);
+        }
+        final List<Uri> changes = recordChanges(() ->
+                mContentResolver.bulkInsert(SampleContentProvider.URI_CHEESE, values));
+        assertThat(changes, is(Collections.singletonList(SampleContentProvider.URI_CHEESE)));
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{BaseColumns._COUNT}, null, null, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getInt(0), is(values.length));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_failedBatchNotifiesNothing() throws Exception {
+        final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation
+                .newInsert(SampleContentProvider.URI_CHEESE)
+                .withValue(Cheese.COLUMN_NAME, "Peynir")
+                .build());
+        // Fails the whole batch: the item doesn't exist.
+        operations.add(ContentProviderOperation
+                .newDelete(ContentUris.withAppendedId(SampleContentProvider.URI_CHEESE, 42))
+                .withExpectedCount(1)
+                .build());
+        final List<Uri> changes = recordChanges(() -> {
+            try {
+                mContentResolver.applyBatch(SampleContentProvider.AUTHORITY, operations);
+            } catch (OperationApplicationException expected) {
+                // The insert is rolled back.
+            }
+            return null;
+        });
+        assertThat(changes.isEmpty(), is(true));
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, null, null, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getCount(), is(0));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_burstOfWritesNotifiesDirectoryOnce() throws Exception {
+        final long window = 500;
+        setNotificationWindow(window);
+        final List<Uri> changes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch first = new CountDownLatch(1);
+        final ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                changes.add(uri);
+                first.countDown();
+            }
+        };
+        mContentResolver.registerContentObserver(SampleContentProvider.URI_CHEESE, true,
+                observer);
+        try {
+            final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                    cheeseWithName("Daigo"));
+            assertThat(itemUri, notNullValue());
+            mContentResolver.insert(SampleContentProvider.URI_CHEESE, cheeseWithName("Queso"));
+            mContentResolver.update(itemUri, cheeseWithName("Peynir"), null, null);
+            assertThat(first.await(5, TimeUnit.SECONDS), is(true));
+            // Nothing else comes once the window has been flushed.
+            Thread.sleep(2 * window);
+        } finally {
+            mContentResolver.unregisterContentObserver(observer);
+        }
+        assertThat(new ArrayList<>(changes),
+                is(Collections.singletonList(SampleContentProvider.URI_CHEESE)));
+    }
+
+    @Test
+    public void cheese_queryHonorsProjectionSelectionAndSortOrder() {
+        mContentResolver.bulkInsert(SampleContentProvider.URI_CHEESE, new ContentValues[]{
+                cheeseWithName("Peynir"),
+                cheeseWithName("Queso"),
+                cheeseWithName("Quark"),
+        });
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, Cheese.COLUMN_NAME + " LIKE ?",
+                new String[]{"Q%"}, Cheese.COLUMN_NAME + " ASC");
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getColumnCount(), is(1));
+        assertThat(cursor.getCount(), is(2));
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getString(0), is("Quark"));
+        assertThat(cursor.moveToNext(), is(true));
+        assertThat(cursor.getString(0), is("Queso"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_queryItemKeepsSelectionInsideItem() {
+        final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                cheeseWithName("Daigo"));
+        mContentResolver.insert(SampleContentProvider.URI_CHEESE, cheeseWithName("Queso"));
+        assertThat(itemUri, notNullValue());
+        final Cursor cursor = mContentResolver.query(itemUri, null,
+                Cheese.COLUMN_NAME + " = ? OR 1", new String[]{"Queso"}, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getColumnCount(), is(2));
+        assertThat(cursor.getCount(), is(1));
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getString(cursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME)), is("Daigo"));
+        cursor.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryRejectsUnknownColumn() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{"sqlite_version()"}, null, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryRejectsSubquery() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE, new String[]{Cheese.COLUMN_NAME},
+                Cheese.COLUMN_ID + " IN (SELECT rowid FROM sqlite_master)", null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryItemRejectsEscapingSelection() {
+        final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                cheeseWithName("Daigo"));
+        assertThat(itemUri, notNullValue());
+        mContentResolver.query(itemUri, null, "1) OR (1", null, null);
+    }
+
+    @Test
+    public void cheese_queryPageByOffset() {
+        insertCheeses("A", "B", "C", "D", "E");
+        final Cursor cursor = mContentResolver.query(pageUri()
+                        .appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_OFFSET, "1")
+                        .build(),
+                new String[]{Cheese.COLUMN_NAME}, null, null, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getCount(), is(2));
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getString(0), is("B"));
+        assertThat(cursor.moveToNext(), is(true));
+        assertThat(cursor.getString(0), is("C"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_queryPageAfterId() {
+        insertCheeses("A", "B", "C", "D", "E");
+        final Cursor first = mContentResolver.query(pageUri().build(),
+                new String[]{Cheese.COLUMN_ID}, null, null, null);
+        assertThat(first, notNullValue());
+        assertThat(first.moveToLast(), is(true));
+        final long lastId = first.getLong(0);
+        first.close();
+        final Cursor cursor = mContentResolver.query(pageUri()
+                        .appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_AFTER,
+                                String.valueOf(lastId))
+                        .build(),
+                new String[]{Cheese.COLUMN_NAME}, Cheese.COLUMN_NAME + " != ?",
+                new String[]{"D"}, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getCount(), is(1));
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getString(0), is("E"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_queryCount() {
+        insertCheeses("A", "B", "C");
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{BaseColumns._COUNT}, null, null, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getInt(0), is(3));
+        cursor.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryRejectsLimitOverMax() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE.buildUpon()
+                        .appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_LIMIT,
+                                String.valueOf(SampleContentProvider.MAX_LIMIT + 1))
+                        .build(),
+                null, null, null, null);
+    }
+
+    /**
+     * Runs {@code writes} and returns the changes notified for the cheese table meanwhile.
+     * Notifications to one observer are delivered in order, so a final notification on a
+     * sentinel URI marks that all the ones before it arrived.
+     */
+    private List<Uri> recordChanges(Callable<?> writes) throws Exception {
+        final Uri sentinel = SampleContentProvider.URI_CHEESE.buildUpon()
+                .appendPath("sentinel").build();
+        final List<Uri> changes = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(1);
+        final ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                if (sentinel.equals(uri)) {
+                    done.countDown();
+                } else {
+                    changes.add(uri);
+                }
+            }
+        };
+        mContentResolver.registerContentObserver(SampleContentProvider.URI_CHEESE, true,
+                observer);
+        try {
+            writes.call();
+            mContentResolver.notifyChange(sentinel, null);
+            assertThat(done.await(5, TimeUnit.SECONDS), is(true));
+        } finally {
+            mContentResolver.unregisterContentObserver(observer);
+        }
+        return new ArrayList<>(changes);
+    }
+
+    private void setNotificationWindow(long windowMillis) {
+        final ContentProviderClient client = mContentResolver.acquireContentProviderClient(
+                SampleContentProvider.AUTHORITY);
+        assertThat(client, notNullValue());
+        try {
+            ((SampleContentProvider) client.getLocalContentProvider())
+                    .setNotificationWindow(windowMillis);
+        } finally {
+            client.release();
+        }
+    }
+
+    private Uri.Builder pageUri() {
+        return SampleContentProvider.URI_CHEESE.buildUpon()
+                .appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_LIMIT, "2");
+    }
+
+    private void insertCheeses(String... names) {
+        final ContentValues[] values = new ContentValues[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = cheeseWithName(names[i]);
+        }
+        mContentResolver.bulkInsert(SampleContentProvider.URI_CHEESE, values);
+    }
+
     private ContentValues cheeseWithName(String name) {
         final ContentValues values = new ContentValues();
         values.put(Cheese.COLUMN_NAME, name);
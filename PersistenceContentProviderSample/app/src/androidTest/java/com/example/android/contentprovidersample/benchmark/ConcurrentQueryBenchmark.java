@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.benchmark;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import com.example.android.contentprovidersample.provider.SampleContentProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures item queries on {@link SampleContentProvider} from several threads at once, the way
+ * Binder threads call it when other apps query it concurrently.
+ *
+ * <p>Each iteration has every thread run {@link #QUERIES_PER_THREAD} queries, so the
+ * throughput is {@code threads * QUERIES_PER_THREAD} divided by the reported time. With no
+ * lock around getting the database, it should grow with the threads up to the number of
+ * cores and of reader connections. The database is a file in write-ahead logging mode, so
+ * readers get connections of their own.</p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ConcurrentQueryBenchmark {
+
+    private static final String DATABASE_NAME = "concurrent-query-benchmark-db";
+
+    private static final int CHEESE_COUNT = 1_000;
+
+    private static final int QUERIES_PER_THREAD = 200;
+
+    private static final String[] PROJECTION = {Cheese.COLUMN_NAME};
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private ContentResolver mContentResolver;
+
+    private long mFirstId;
+
+    private ExecutorService mClients;
+
+    @Before
+    public void setUp() {
+        SampleDatabase.switchToFile(mContext, DATABASE_NAME);
+        mContentResolver = mContext.getContentResolver();
+        final ContentValues[] values = new ContentValues[CHEESE_COUNT];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new ContentValues();
+            values[i].put(Cheese.COLUMN_NAME, "Cheese " + i);
+        }
+        mContentResolver.bulkInsert(SampleContentProvider.URI_CHEESE, values);
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_ID}, null, null, Cheese.COLUMN_ID + " ASC");
+        assertThat(cursor != null, is(true));
+        try {
+            assertThat(cursor.moveToFirst(), is(true));
+            mFirstId = cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (mClients != null) {
+            mClients.shutdown();
+            mClients.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        SampleDatabase.getInstance(mContext).close();
+        SampleDatabase.switchToInMemory(mContext);
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void oneThread() throws Exception {
+        measure(1);
+    }
+
+    @Test
+    public void twoThreads() throws Exception {
+        measure(2);
+    }
+
+    @Test
+    public void fourThreads() throws Exception {
+        measure(4);
+    }
+
+    @Test
+    public void eightThreads() throws Exception {
+        measure(8);
+    }
+
+    private void measure(int threads) throws Exception {
+        mClients = Executors.newFixedThreadPool(threads);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Integer>> results = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                results.add(mClients.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws InterruptedException {
+                        start.await();
+                        return queryCheeses(offset);
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertThat(result.get(), is(QUERIES_PER_THREAD));
+            }
+        }
+    }
+
+    /** Queries cheeses one by one, each thread starting at a different one. */
+    private int queryCheeses(int offset) {
+        int found = 0;
+        for (int i = 0; i < QUERIES_PER_THREAD; i++) {
+            final long id = mFirstId + (offset * 97L + i) % CHEESE_COUNT;
+            final Cursor cursor = mContentResolver.query(
+                    ContentUris.withAppendedId(SampleContentProvider.URI_CHEESE, id),
+                    PROJECTION, null, null, null);
+            if (cursor == null) {
+                continue;
+            }
+            try {
+                if (cursor.moveToFirst()) {
+                    found++;
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return found;
+    }
+
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.BaseColumns;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.provider.SampleContentProvider;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * Shows the cheeses of {@link SampleContentProvider} a page at a time.
+ *
+ * <p>Instead of one cursor over the whole table, whose window gets refilled as the list scrolls,
+ * this adapter only asks the provider for the number of rows and then for the pages around the
+ * visible one. Each page is copied out of its cursor, which is closed right away, so memory
+ * stays bounded by {@code (2 * PREFETCH_PAGES + 1) * PAGE_SIZE} rows however long the table
+ * is. Rows that aren't loaded yet are bound empty and rebound when their page arrives.</p>
+ *
+ * <p>A page following a loaded one is queried after its last ID, which is a seek on the primary
+ * key; only jumping into the middle of the list falls back to an offset.</p>
+ */
+class CheeseWindowAdapter extends RecyclerView.Adapter<CheeseWindowAdapter.ViewHolder> {
+
+    /** The number of rows queried at once. */
+    static final int PAGE_SIZE = 100;
+
+    /** The number of pages kept on each side of the visible one. */
+    static final int PREFETCH_PAGES = 2;
+
+    private static final String[] PROJECTION = {Cheese.COLUMN_ID, Cheese.COLUMN_NAME};
+
+    private static final String[] COUNT_PROJECTION = {BaseColumns._COUNT};
+
+    private final ContentResolver mResolver;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /** Queries the provider, one at a time so pages come back in the order they were asked. */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    /** The loaded pages by index. Only touched on the main thread. */
+    private final SparseArray<Page> mPages = new SparseArray<>();
+
+    /** The pages being loaded. Only touched on the main thread. */
+    private final SparseBooleanArray mLoading = new SparseBooleanArray();
+
+    private final ContentObserver mObserver = new ContentObserver(mMainHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            reload();
+        }
+    };
+
+    private int mCount;
+
+    /** Bumped on every change to the table, so pages loaded before it are dropped. */
+    private volatile int mGeneration;
+
+    /** Also read by queued loads, to skip the pages the list has scrolled away from. */
+    private volatile int mVisiblePage;
+
+    CheeseWindowAdapter(@NonNull ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        // Deleting a cheese notifies its item URI, so listen to those too.
+        mResolver.registerContentObserver(SampleContentProvider.URI_CHEESE, true, mObserver);
+        reload();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        mResolver.unregisterContentObserver(mObserver);
+    }
+
+    /** Stops loading pages. The adapter can't be used afterwards. */
+    void close() {
+        mResolver.unregisterContentObserver(mObserver);
+        mExecutor.shutdownNow();
+        mMainHandler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    @NonNull
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return new ViewHolder(parent);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        final int index = position / PAGE_SIZE;
+        if (index != mVisiblePage) {
+            mVisiblePage = index;
+            evictPages();
+        }
+        loadPages();
+        final Page page = mPages.get(index);
+        final int offset = position % PAGE_SIZE;
+        holder.mText.setText(page != null && offset < page.mNames.length
+                ? page.mNames[offset] : null);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mCount;
+    }
+
+    private void reload() {
+        final int generation = ++mGeneration;
+        mExecutor.execute(() -> {
+            final int count = queryCount();
+            mMainHandler.post(() -> {
+                if (generation != mGeneration) {
+                    return;
+                }
+                mCount = count;
+                mPages.clear();
+                mLoading.clear();
+                notifyDataSetChanged();
+            });
+        });
+    }
+
+    private void loadPages() {
+        final int lastPage = (mCount - 1) / PAGE_SIZE;
+        final int from = Math.max(0, mVisiblePage - PREFETCH_PAGES);
+        final int to = Math.min(lastPage, mVisiblePage + PREFETCH_PAGES);
+        // The visible page first, then outwards.
+        for (int distance = 0; distance <= PREFETCH_PAGES; distance++) {
+            if (mVisiblePage + distance <= to) {
+                loadPage(mVisiblePage + distance);
+            }
+            if (distance > 0 && mVisiblePage - distance >= from) {
+                loadPage(mVisiblePage - distance);
+            }
+        }
+    }
+
+    private void loadPage(final int index) {
+        if (mPages.get(index) != null || mLoading.get(index)) {
+            return;
+        }
+        mLoading.put(index, true);
+        final Uri uri = pageUri(index);
+        final int generation = mGeneration;
+        mExecutor.execute(() -> {
+            if (generation != mGeneration
+                    || Math.abs(index - mVisiblePage) > PREFETCH_PAGES) {
+                return;
+            }
+            final Page page = queryPage(uri);
+            mMainHandler.post(() -> {
+                if (generation != mGeneration || !mLoading.get(index)) {
+                    return;
+                }
+                mLoading.delete(index);
+                if (Math.abs(index - mVisiblePage) > PREFETCH_PAGES) {
+                    // Scrolled away while it was loading.
+                    return;
+                }
+                mPages.put(index, page);
+                final int start = index * PAGE_SIZE;
+                notifyItemRangeChanged(start, Math.min(PAGE_SIZE, mCount - start));
+            });
+        });
+    }
+
+    private Uri pageUri(int index) {
+        final Uri.Builder builder = SampleContentProvider.URI_CHEESE.buildUpon()
+                .appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_LIMIT,
+                        String.valueOf(PAGE_SIZE));
+        final Page previous = mPages.get(index - 1);
+        if (previous != null && previous.mIds.length == PAGE_SIZE) {
+            builder.appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_AFTER,
+                    String.valueOf(previous.mIds[PAGE_SIZE - 1]));
+        } else {
+            builder.appendQueryParameter(SampleContentProvider.QUERY_PARAMETER_OFFSET,
+                    String.valueOf(index * PAGE_SIZE));
+        }
+        return builder.build();
+    }
+
+    /** Drops the pages too far from the visible one, and forgets about loading them. */
+    private void evictPages() {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (Math.abs(mPages.keyAt(i) - mVisiblePage) > PREFETCH_PAGES) {
+                mPages.removeAt(i);
+            }
+        }
+        for (int i = mLoading.size() - 1; i >= 0; i--) {
+            if (Math.abs(mLoading.keyAt(i) - mVisiblePage) > PREFETCH_PAGES) {
+                mLoading.delete(mLoading.keyAt(i));
+            }
+        }
+    }
+
+    private int queryCount() {
+        final Cursor cursor = mResolver.query(SampleContentProvider.URI_CHEESE,
+                COUNT_PROJECTION, null, null, null);
+        if (cursor == null) {
+            return 0;
+        }
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @NonNull
+    private Page queryPage(Uri uri) {
+        final Cursor cursor = mResolver.query(uri, PROJECTION, null, null, null);
+        if (cursor == null) {
+            return new Page(new long[0], new String[0]);
+        }
+        try {
+            final long[] ids = new long[cursor.getCount()];
+            final String[] names = new String[ids.length];
+            final int id = cursor.getColumnIndexOrThrow(Cheese.COLUMN_ID);
+            final int name = cursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME);
+            for (int i = 0; cursor.moveToNext(); i++) {
+                ids[i] = cursor.getLong(id);
+                names[i] = cursor.getString(name);
+            }
+            return new Page(ids, names);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** The rows of one page, copied out of the cursor. */
+    private static class Page {
+
+        final long[] mIds;
+
+        final String[] mNames;
+
+        Page(long[] ids, String[] names) {
+            mIds = ids;
+            mNames = names;
+        }
+
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView mText;
+
+        ViewHolder(ViewGroup parent) {
+            super(LayoutInflater.from(parent.getContext()).inflate(
+                    android.R.layout.simple_list_item_1, parent, false));
+            mText = itemView.findViewById(android.R.id.text1);
+        }
+
+    }
+
+}
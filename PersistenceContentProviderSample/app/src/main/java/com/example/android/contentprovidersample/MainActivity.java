@@ -16,22 +16,12 @@
 
 package com.example.android.contentprovidersample;
 
-import android.database.Cursor;
 import android.os.Bundle;
 
-import androidx.annotation.NonNull;
-import androidx.annotation.Nullable;
-import androidx.loader.app.LoaderManager;
-import androidx.loader.content.CursorLoader;
-import androidx.loader.content.Loader;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import android.view.LayoutInflater;
-import android.view.ViewGroup;
-import android.widget.TextView;
 
-import com.example.android.contentprovidersample.data.Cheese;
 import com.example.android.contentprovidersample.provider.SampleContentProvider;
 
 
@@ -43,9 +33,7 @@ import com.example.android.contentprovidersample.provider.SampleContentProvider;
  */
 public class MainActivity extends AppCompatActivity {
 
-    private static final int LOADER_CHEESES = 1;
-
-    private CheeseAdapter mCheeseAdapter;
+    private CheeseWindowAdapter mCheeseAdapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -54,76 +42,14 @@ public class MainActivity extends AppCompatActivity {
 
         final RecyclerView list = findViewById(R.id.list);
         list.setLayoutManager(new LinearLayoutManager(list.getContext()));
-        mCheeseAdapter = new CheeseAdapter();
+        mCheeseAdapter = new CheeseWindowAdapter(getContentResolver());
         list.setAdapter(mCheeseAdapter);
-
-        LoaderManager.getInstance(this).initLoader(LOADER_CHEESES, null, mLoaderCallbacks);
     }
 
-    private final LoaderManager.LoaderCallbacks<Cursor> mLoaderCallbacks =
-            new LoaderManager.LoaderCallbacks<Cursor>() {
-
-                @Override
-                @NonNull
-                public Loader<Cursor> onCreateLoader(int id, @Nullable Bundle args) {
-                    return new CursorLoader(getApplicationContext(),
-                            SampleContentProvider.URI_CHEESE,
-                            new String[]{Cheese.COLUMN_NAME},
-                            null, null, null);
-                }
-
-                @Override
-                public void onLoadFinished(@NonNull Loader<Cursor> loader, Cursor data) {
-                    mCheeseAdapter.setCheeses(data);
-                }
-
-                @Override
-                public void onLoaderReset(@NonNull Loader<Cursor> loader) {
-                    mCheeseAdapter.setCheeses(null);
-                }
-
-            };
-
-    private static class CheeseAdapter extends RecyclerView.Adapter<CheeseAdapter.ViewHolder> {
-
-        private Cursor mCursor;
-
-        @Override
-        @NonNull
-        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            return new ViewHolder(parent);
-        }
-
-        @Override
-        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            if (mCursor.moveToPosition(position)) {
-                holder.mText.setText(mCursor.getString(
-                        mCursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME)));
-            }
-        }
-
-        @Override
-        public int getItemCount() {
-            return mCursor == null ? 0 : mCursor.getCount();
-        }
-
-        void setCheeses(Cursor cursor) {
-            mCursor = cursor;
-            notifyDataSetChanged();
-        }
-
-        static class ViewHolder extends RecyclerView.ViewHolder {
-
-            final TextView mText;
-
-            ViewHolder(ViewGroup parent) {
-                super(LayoutInflater.from(parent.getContext()).inflate(
-                        android.R.layout.simple_list_item_1, parent, false));
-                mText = itemView.findViewById(android.R.id.text1);
-            }
-
-        }
-
+    @Override
+    protected void onDestroy() {
+        mCheeseAdapter.close();
+        super.onDestroy();
     }
 
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Inserts the initial cheeses into an empty {@link SampleDatabase} in the background.
+ *
+ * <p>The cheeses are inserted with {@link CheeseDao#insertAll}, a chunk at a time, all in one
+ * transaction: readers see either no cheese or all of them, and a seeding interrupted halfway
+ * starts over on the next launch. Nobody waits for it unless they ask to with
+ * {@link #awaitReady}; a query that runs before it's done sees an empty table, and
+ * {@link Listener}s hear about it when the cheeses are in.</p>
+ */
+public class CheeseSeeder {
+
+    private static final String TAG = "CheeseSeeder";
+
+    /** The number of cheeses inserted with one call to {@link CheeseDao#insertAll}. */
+    public static final int DEFAULT_CHUNK_SIZE = 100;
+
+    /** Notified when the seeding inserted the cheeses. */
+    public interface Listener {
+
+        /**
+         * Called on the seeding thread once the cheeses are committed. Not called when the
+         * database already had cheeses.
+         *
+         * @param count The number of cheeses inserted.
+         */
+        void onSeeded(int count);
+    }
+
+    private final SampleDatabase mDatabase;
+
+    private final int mChunkSize;
+
+    private final CountDownLatch mReady = new CountDownLatch(1);
+
+    /** Guarded by {@code this}. */
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    /** Guarded by {@code this}. The number of cheeses inserted, or -1 while seeding. */
+    private int mSeededCount = -1;
+
+    public CheeseSeeder(@NonNull SampleDatabase database, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        mDatabase = database;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Inserts {@code names} on {@code executor} if the table is empty. Opening the database,
+     * which may copy it from the assets, happens there as well.
+     */
+    public void start(@NonNull Executor executor, @NonNull final String[] names) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                int count = 0;
+                try {
+                    count = seed(names);
+                } catch (RuntimeException e) {
+                    // The table stays empty and is seeded again on the next launch.
+                    Log.e(TAG, "Failed to seed the cheeses", e);
+                } finally {
+                    mReady.countDown();
+                }
+                final List<Listener> listeners;
+                synchronized (CheeseSeeder.this) {
+                    mSeededCount = count;
+                    listeners = new ArrayList<>(mListeners);
+                }
+                if (count > 0) {
+                    for (Listener listener : listeners) {
+                        listener.onSeeded(count);
+                    }
+                }
+            }
+        });
+    }
+
+    /** Opens the gate without seeding, for a database that is meant to start empty. */
+    void skip() {
+        synchronized (this) {
+            mSeededCount = 0;
+            mListeners.clear();
+        }
+        mReady.countDown();
+    }
+
+    /** Returns whether the seeding is over, whether it inserted anything or not. */
+    public boolean isReady() {
+        return mReady.getCount() == 0;
+    }
+
+    /**
+     * Waits for the seeding to be over.
+     *
+     * @return {@code false} if it still isn't after {@code timeout}.
+     */
+    public boolean awaitReady(long timeout, @NonNull TimeUnit unit) throws InterruptedException {
+        return mReady.await(timeout, unit);
+    }
+
+    /**
+     * Adds a listener. If the seeding already inserted the cheeses, it's called right away on
+     * this thread.
+     */
+    public void addListener(@NonNull Listener listener) {
+        final int count;
+        synchronized (this) {
+            if (mSeededCount < 0) {
+                mListeners.add(listener);
+                return;
+            }
+            count = mSeededCount;
+        }
+        if (count > 0) {
+            listener.onSeeded(count);
+        }
+    }
+
+    public synchronized void removeListener(@NonNull Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private int seed(final String[] names) {
+        return mDatabase.runInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return insertIfEmpty(names);
+            }
+        });
+    }
+
+    private int insertIfEmpty(String[] names) {
+        if (mDatabase.cheese().count() != 0) {
+            return 0;
+        }
+        Cheese[] chunk = new Cheese[Math.min(mChunkSize, names.length)];
+        for (int start = 0; start < names.length; start += chunk.length) {
+            if (names.length - start < chunk.length) {
+                chunk = new Cheese[names.length - start];
+            }
+            for (int i = 0; i < chunk.length; i++) {
+                final Cheese cheese = new Cheese();
+                cheese.name = names[start + i];
+                chunk[i] = cheese;
+            }
+            mDatabase.cheese().insertAll(chunk);
+        }
+        return names.length;
+    }
+
+}
@@ -22,6 +22,9 @@ import androidx.room.RoomDatabase;
 import android.content.Context;
 import androidx.annotation.VisibleForTesting;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 /**
  * The Room database.
  */
@@ -34,23 +37,47 @@ public abstract class SampleDatabase extends RoomDatabase {
     @SuppressWarnings("WeakerAccess")
     public abstract CheeseDao cheese();
 
-    /** The only instance */
-    private static SampleDatabase sInstance;
+    /** The name of the database file. */
+    private static final String DATABASE_NAME = "ex";
 
     /**
-     * Gets the singleton instance of SampleDatabase.
+     * A prebuilt database to copy on first launch instead of seeding, if the app ships one.
+     * It must match the exported schema of the current version.
+     */
+    @VisibleForTesting
+    public static final String PREPACKAGED_DATABASE_ASSET = "databases/cheeses.db";
+
+    /** The only instance. Volatile so it can be read without taking the lock. */
+    private static volatile SampleDatabase sInstance;
+
+    /** Inserts the dummy data into a new database. */
+    private final CheeseSeeder mSeeder = new CheeseSeeder(this, CheeseSeeder.DEFAULT_CHUNK_SIZE);
+
+    /**
+     * Gets the singleton instance of SampleDatabase. The first call starts seeding the database
+     * in the background, see {@link #getSeeder()}, and doesn't touch the disk itself.
+     *
+     * <p>Once the instance exists this is a single volatile read: the provider calls it from
+     * every Binder thread, and they shouldn't queue on a lock to get a reference.</p>
      *
      * @param context The context.
      * @return The singleton instance of SampleDatabase.
      */
-    public static synchronized SampleDatabase getInstance(Context context) {
-        if (sInstance == null) {
-            sInstance = Room
-                    .databaseBuilder(context.getApplicationContext(), SampleDatabase.class, "ex")
-                    .build();
-            sInstance.populateInitialData();
+    public static SampleDatabase getInstance(Context context) {
+        SampleDatabase instance = sInstance;
+        if (instance == null) {
+            synchronized (SampleDatabase.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = buildDatabase(context.getApplicationContext(), DATABASE_NAME);
+                    // The transaction executor runs one task at a time, so the seeding doesn't
+                    // compete with Room's own transactions.
+                    instance.mSeeder.start(instance.getTransactionExecutor(), Cheese.CHEESES);
+                    sInstance = instance;
+                }
+            }
         }
-        return sInstance;
+        return instance;
     }
 
     /**
@@ -59,26 +86,52 @@ public abstract class SampleDatabase extends RoomDatabase {
      * @param context The context.
      */
     @VisibleForTesting
-    public static void switchToInMemory(Context context) {
-        sInstance = Room.inMemoryDatabaseBuilder(context.getApplicationContext(),
-                SampleDatabase.class).build();
+    public static synchronized void switchToInMemory(Context context) {
+        final SampleDatabase instance = Room.inMemoryDatabaseBuilder(
+                context.getApplicationContext(), SampleDatabase.class).build();
+        instance.mSeeder.skip();
+        sInstance = instance;
+    }
+
+    /**
+     * Switches the internal implementation with an empty database in a file of its own, for
+     * tests that need more than the one connection of an in-memory database.
+     *
+     * @param context The context.
+     * @param name    The name of the database file. Any existing file is deleted.
+     */
+    @VisibleForTesting
+    public static synchronized void switchToFile(Context context, String name) {
+        final Context appContext = context.getApplicationContext();
+        appContext.deleteDatabase(name);
+        final SampleDatabase instance = buildDatabase(appContext, name);
+        instance.mSeeder.skip();
+        sInstance = instance;
+    }
+
+    private static SampleDatabase buildDatabase(Context appContext, String name) {
+        final Builder<SampleDatabase> builder =
+                Room.databaseBuilder(appContext, SampleDatabase.class, name);
+        if (name.equals(DATABASE_NAME) && hasAsset(appContext, PREPACKAGED_DATABASE_ASSET)) {
+            builder.createFromAsset(PREPACKAGED_DATABASE_ASSET);
+        }
+        return builder.build();
     }
 
     /**
-     * Inserts the dummy data into the database if it is currently empty.
+     * @return The seeding of the initial data, to wait for it or to hear when it's done.
      */
-    private void populateInitialData() {
-        if (cheese().count() == 0) {
-            runInTransaction(new Runnable() {
-                @Override
-                public void run() {
-                    Cheese cheese = new Cheese();
-                    for (int i = 0; i < Cheese.CHEESES.length; i++) {
-                        cheese.name = Cheese.CHEESES[i];
-                        cheese().insert(cheese);
-                    }
-                }
-            });
+    public CheeseSeeder getSeeder() {
+        return mSeeder;
+    }
+
+    private static boolean hasAsset(Context context, String path) {
+        final int slash = path.lastIndexOf('/');
+        try {
+            final String[] names = context.getAssets().list(path.substring(0, slash));
+            return names != null && Arrays.asList(names).contains(path.substring(slash + 1));
+        } catch (IOException e) {
+            return false;
         }
     }
 
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.RoomDatabase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Sends the change notifications of {@link SampleContentProvider}.
+ *
+ * <p>Changes are coalesced over a window: the first change after a flush schedules the next
+ * flush {@code window} milliseconds later, and everything changed until then is notified
+ * together. A burst of writes then makes observers requery about once per window instead of
+ * once per write, and no change waits longer than the window. Before notifying, the changes
+ * are merged: several items of the same directory, or an item and its directory, become one
+ * notification of the directory, which also reaches the observers of its items. A window of
+ * {@code 0} notifies right away.</p>
+ *
+ * <p>Inside {@link #runBatch}, the changed URIs are collected and only handed over once the
+ * transaction commits, so a batch that rolls back notifies nothing.</p>
+ */
+class ChangeNotifier {
+
+    private final ContentResolver mResolver;
+
+    /** The URIs changed by the batch running on the current thread, if any. */
+    private final ThreadLocal<Set<Uri>> mBatch = new ThreadLocal<>();
+
+    private final Object mLock = new Object();
+
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /** Guarded by {@link #mLock}. */
+    private Set<Uri> mPending = new LinkedHashSet<>();
+
+    /** Guarded by {@link #mLock}. */
+    private long mWindowMillis;
+
+    /** Guarded by {@link #mLock}, created with the first window. */
+    @Nullable
+    private Handler mHandler;
+
+    ChangeNotifier(@NonNull ContentResolver resolver, long windowMillis) {
+        mResolver = resolver;
+        setWindow(windowMillis);
+    }
+
+    /** Changes the coalescing window. Changes already pending are flushed with the old one. */
+    void setWindow(long windowMillis) {
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("window must not be negative: " + windowMillis);
+        }
+        synchronized (mLock) {
+            mWindowMillis = windowMillis;
+            if (windowMillis > 0 && mHandler == null) {
+                final HandlerThread thread = new HandlerThread("provider-notifications",
+                        Process.THREAD_PRIORITY_BACKGROUND);
+                thread.start();
+                mHandler = new Handler(thread.getLooper());
+            }
+        }
+    }
+
+    /** Notifies that {@code uri} changed, or records it if a batch is running on this thread. */
+    void notifyChange(@NonNull Uri uri) {
+        final Set<Uri> batch = mBatch.get();
+        if (batch != null) {
+            batch.add(uri);
+        } else {
+            enqueue(Collections.singleton(uri));
+        }
+    }
+
+    /**
+     * Runs {@code body} in a transaction of {@code database}, and notifies the URIs it changed
+     * once it committed. A batch started inside another one joins it.
+     */
+    <T> T runBatch(@NonNull RoomDatabase database, @NonNull Callable<T> body) {
+        if (mBatch.get() != null) {
+            return database.runInTransaction(body);
+        }
+        final Set<Uri> batch = new LinkedHashSet<>();
+        mBatch.set(batch);
+        final T result;
+        try {
+            result = database.runInTransaction(body);
+        } finally {
+            mBatch.remove();
+        }
+        if (!batch.isEmpty()) {
+            enqueue(batch);
+        }
+        return result;
+    }
+
+    /** Notifies the pending changes now. */
+    void flush() {
+        final Set<Uri> pending;
+        synchronized (mLock) {
+            if (mPending.isEmpty()) {
+                return;
+            }
+            pending = mPending;
+            mPending = new LinkedHashSet<>();
+            if (mHandler != null) {
+                mHandler.removeCallbacks(mFlush);
+            }
+        }
+        for (Uri uri : coalesce(pending)) {
+            mResolver.notifyChange(uri, null);
+        }
+    }
+
+    private void enqueue(Collection<Uri> uris) {
+        final boolean now;
+        synchronized (mLock) {
+            final boolean first = mPending.isEmpty();
+            mPending.addAll(uris);
+            now = mWindowMillis == 0;
+            if (!now && first) {
+                mHandler.postDelayed(mFlush, mWindowMillis);
+            }
+        }
+        if (now) {
+            flush();
+        }
+    }
+
+    /**
+     * Replaces the items of a directory with the directory when there is more than one of them,
+     * or when the directory itself changed.
+     */
+    private static Collection<Uri> coalesce(Set<Uri> uris) {
+        // By directory, the only item that changed in it, or null if there are several.
+        final Map<Uri, Uri> items = new LinkedHashMap<>();
+        final List<Uri> result = new ArrayList<>();
+        for (Uri uri : uris) {
+            final Uri directory = directoryOf(uri);
+            if (directory == null) {
+                result.add(uri);
+            } else if (items.containsKey(directory)) {
+                items.put(directory, null);
+            } else {
+                items.put(directory, uri);
+            }
+        }
+        for (Map.Entry<Uri, Uri> entry : items.entrySet()) {
+            final Uri directory = entry.getKey();
+            if (uris.contains(directory)) {
+                continue;
+            }
+            result.add(entry.getValue() == null ? directory : entry.getValue());
+        }
+        return result;
+    }
+
+    /** The URI without its last path segment, or null if it's already a top level one. */
+    @Nullable
+    private static Uri directoryOf(Uri uri) {
+        final List<String> segments = uri.getPathSegments();
+        if (segments.size() < 2) {
+            return null;
+        }
+        final Uri.Builder builder = uri.buildUpon().path(null).query(null);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            builder.appendPath(segments.get(i));
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.provider.BaseColumns;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+
+/**
+ * Turns the arguments of {@link android.content.ContentProvider#query} into a query on one table,
+ * and remembers the SQL it built for each query shape.
+ *
+ * <p>The projection, selection and sort order come from other apps, so they are checked against
+ * a whitelist of columns before they get anywhere near the database: the projection and sort
+ * order may only name whitelisted columns, and the selection may only use whitelisted columns,
+ * literals, {@code ?} placeholders, operators and a few keywords. Anything else, including
+ * subqueries, comments and {@code ;}, is rejected with an {@link IllegalArgumentException}.
+ * The projection {@code {"_count"}} ({@link BaseColumns#_COUNT}) returns the number of matching
+ * rows.</p>
+ *
+ * <p>Values always go through {@code selectionArgs}, and IDs and {@link Page} bounds are bound
+ * the same way, so the SQL of a query only depends on its shape: projection, selection, sort
+ * order and kind of page. It is built and validated once per shape and kept in an LRU.
+ * Identical SQL also lets SQLite reuse the statement it prepared for the connection instead of
+ * compiling it again.</p>
+ */
+public class QueryCache {
+
+    /** Keywords allowed in a selection besides column names. */
+    private static final Set<String> SELECTION_KEYWORDS = new HashSet<>(Arrays.asList(
+            "AND", "OR", "NOT", "IS", "NULL", "LIKE", "GLOB", "IN", "BETWEEN", "ESCAPE",
+            "COLLATE", "NOCASE", "TRUE", "FALSE"));
+
+    private static final String[] COUNT_COLUMNS = {"COUNT(*) AS " + BaseColumns._COUNT};
+
+    private final String mTable;
+
+    private final String mIdColumn;
+
+    private final Set<String> mColumns;
+
+    private final String[] mDefaultProjection;
+
+    private final LruCache<String, String> mSql;
+
+    /**
+     * @param table     The table to query.
+     * @param idColumn  The column {@link #queryById} and {@link Page#after} use.
+     * @param columns   The columns callers may project, select and sort on. Also the projection
+     *                  used when the caller doesn't pass one.
+     * @param maxShapes How many query shapes to remember.
+     */
+    public QueryCache(@NonNull String table, @NonNull String idColumn, @NonNull String[] columns,
+            int maxShapes) {
+        mTable = table;
+        mIdColumn = idColumn;
+        mColumns = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(columns)));
+        mDefaultProjection = columns.clone();
+        mSql = new LruCache<>(maxShapes);
+    }
+
+    /**
+     * Builds the query for the given arguments of {@link android.content.ContentProvider#query}.
+     *
+     * @throws IllegalArgumentException if one of them uses something outside the whitelist.
+     */
+    @NonNull
+    public SupportSQLiteQuery query(@Nullable String[] projection, @Nullable String selection,
+            @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return query(projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    /**
+     * Like {@link #query(String[], String, String[], String)}, limited to one page of rows.
+     * Without a sort order the rows are ordered by ID, so pages don't overlap.
+     */
+    @NonNull
+    public SupportSQLiteQuery query(@Nullable String[] projection, @Nullable String selection,
+            @Nullable String[] selectionArgs, @Nullable String sortOrder, @Nullable Page page) {
+        final String sql = sql(false, projection, selection, sortOrder, page);
+        final List<Object> args = new ArrayList<>();
+        if (page != null && page.mKeyset) {
+            args.add(page.mAfterId);
+        }
+        addAll(args, selectionArgs);
+        if (page != null) {
+            args.add(page.mLimit);
+            if (!page.mKeyset) {
+                args.add(page.mOffset);
+            }
+        }
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    /**
+     * Like {@link #query(String[], String, String[], String)}, limited to the row with the given
+     * ID.
+     */
+    @NonNull
+    public SupportSQLiteQuery queryById(long id, @Nullable String[] projection,
+            @Nullable String selection, @Nullable String[] selectionArgs,
+            @Nullable String sortOrder) {
+        final List<Object> args = new ArrayList<>();
+        // The ID is the first placeholder.
+        args.add(id);
+        addAll(args, selectionArgs);
+        return new SimpleSQLiteQuery(sql(true, projection, selection, sortOrder, null),
+                args.toArray());
+    }
+
+    /**
+     * A page of rows, either the rows after an ID or the rows at an offset. Paging after the
+     * last ID of the previous page is a seek on the primary key, so every page costs the same;
+     * an offset makes SQLite step over all the rows before it.
+     */
+    public static final class Page {
+
+        final boolean mKeyset;
+
+        final long mAfterId;
+
+        final int mOffset;
+
+        final int mLimit;
+
+        private Page(boolean keyset, long afterId, int offset, int limit) {
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be positive: " + limit);
+            }
+            if (offset < 0) {
+                throw new IllegalArgumentException("offset must not be negative: " + offset);
+            }
+            mKeyset = keyset;
+            mAfterId = afterId;
+            mOffset = offset;
+            mLimit = limit;
+        }
+
+        /** Up to {@code limit} rows with an ID greater than {@code afterId}, in ID order. */
+        @NonNull
+        public static Page after(long afterId, int limit) {
+            return new Page(true, afterId, 0, limit);
+        }
+
+        /** Up to {@code limit} rows, skipping the first {@code offset}. */
+        @NonNull
+        public static Page offset(int offset, int limit) {
+            return new Page(false, 0, offset, limit);
+        }
+    }
+
+    private String sql(boolean byId, @Nullable String[] projection, @Nullable String selection,
+            @Nullable String sortOrder, @Nullable Page page) {
+        final String key = shapeKey(byId, projection, selection, sortOrder, page);
+        String sql = mSql.get(key);
+        if (sql == null) {
+            sql = build(byId, projection, selection, sortOrder, page);
+            mSql.put(key, sql);
+        }
+        return sql;
+    }
+
+    private String build(boolean byId, @Nullable String[] projection, @Nullable String selection,
+            @Nullable String sortOrder, @Nullable Page page) {
+        final String[] columns;
+        if (projection == null || projection.length == 0) {
+            columns = mDefaultProjection;
+        } else if (projection.length == 1 && BaseColumns._COUNT.equals(projection[0])) {
+            columns = COUNT_COLUMNS;
+        } else {
+            for (String column : projection) {
+                checkColumn(column);
+            }
+            columns = projection;
+        }
+        if (!TextUtils.isEmpty(selection)) {
+            checkSelection(selection);
+        }
+        String orderBy = TextUtils.isEmpty(sortOrder) ? null : sortOrder;
+        if (orderBy != null) {
+            checkSortOrder(orderBy);
+        }
+        String where = TextUtils.isEmpty(selection) ? null : selection;
+        if (byId || (page != null && page.mKeyset)) {
+            if (page != null && orderBy != null && !isIdOrder(orderBy)) {
+                throw new IllegalArgumentException(
+                        "Paging after an ID needs the rows in ID order: " + sortOrder);
+            }
+            // The selection was checked on its own above, so its parentheses can't be escaped.
+            where = mIdColumn + (byId ? " = ?" : " > ?")
+                    + (where == null ? "" : " AND (" + where + ")");
+        }
+        if (page != null && (orderBy == null || page.mKeyset)) {
+            orderBy = mIdColumn + " ASC";
+        }
+        String sql = SupportSQLiteQueryBuilder.builder(mTable)
+                .columns(columns)
+                .selection(where, null)
+                .orderBy(orderBy)
+                .create()
+                .getSql();
+        if (page != null) {
+            // The builder only takes literal limits, bind them instead so the SQL stays the same.
+            sql += page.mKeyset ? " LIMIT ?" : " LIMIT ? OFFSET ?";
+        }
+        return sql;
+    }
+
+    private boolean isIdOrder(String sortOrder) {
+        final String[] words = sortOrder.trim().split("\\s+");
+        return words[0].equals(mIdColumn)
+                && (words.length == 1 || (words.length == 2 && words[1].equalsIgnoreCase("ASC")));
+    }
+
+    private void checkColumn(String column) {
+        if (!mColumns.contains(column)) {
+            throw new IllegalArgumentException("Unknown column: " + column);
+        }
+    }
+
+    /**
+     * Accepts {@code column [COLLATE NOCASE] [ASC|DESC]}, separated by commas.
+     */
+    private void checkSortOrder(String sortOrder) {
+        for (String term : sortOrder.split(",")) {
+            final String[] words = term.trim().split("\\s+");
+            checkColumn(words[0]);
+            int i = 1;
+            if (i + 1 < words.length && words[i].equalsIgnoreCase("COLLATE")
+                    && words[i + 1].equalsIgnoreCase("NOCASE")) {
+                i += 2;
+            }
+            if (i < words.length && (words[i].equalsIgnoreCase("ASC")
+                    || words[i].equalsIgnoreCase("DESC"))) {
+                i++;
+            }
+            if (i != words.length) {
+                throw new IllegalArgumentException("Invalid sort order: " + sortOrder);
+            }
+        }
+    }
+
+    /**
+     * Scans the selection token by token and rejects anything that isn't a whitelisted column,
+     * an allowed keyword, a literal, a placeholder or an operator.
+     */
+    private void checkSelection(String selection) {
+        final int length = selection.length();
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = selection.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int end = i;
+                while (end < length && (Character.isLetterOrDigit(selection.charAt(end))
+                        || selection.charAt(end) == '_')) {
+                    end++;
+                }
+                final String word = selection.substring(i, end);
+                if (!mColumns.contains(word)
+                        && !SELECTION_KEYWORDS.contains(word.toUpperCase(Locale.US))) {
+                    throw new IllegalArgumentException(
+                            "Invalid selection, unknown column or keyword " + word);
+                }
+                i = end;
+            } else if (Character.isDigit(c) || c == '.') {
+                while (i < length && (Character.isLetterOrDigit(selection.charAt(i))
+                        || selection.charAt(i) == '.')) {
+                    i++;
+                }
+            } else if (c == '\'') {
+                // A string literal, '' is an escaped quote.
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        throw new IllegalArgumentException(
+                                "Invalid selection, unterminated string: " + selection);
+                    }
+                    if (selection.charAt(i) == '\'') {
+                        if (i + 1 < length && selection.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                if (--depth < 0) {
+                    throw new IllegalArgumentException(
+                            "Invalid selection, unbalanced parentheses: " + selection);
+                }
+                i++;
+            } else if (c == '-' && i + 1 < length && selection.charAt(i + 1) == '-') {
+                throw new IllegalArgumentException("Invalid selection, comment: " + selection);
+            } else if (c == '/' && i + 1 < length && selection.charAt(i + 1) == '*') {
+                throw new IllegalArgumentException("Invalid selection, comment: " + selection);
+            } else if ("?=<>!+-*/%,|".indexOf(c) >= 0) {
+                i++;
+            } else {
+                throw new IllegalArgumentException(
+                        "Invalid selection, unexpected '" + c + "': " + selection);
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException(
+                    "Invalid selection, unbalanced parentheses: " + selection);
+        }
+    }
+
+    private static String shapeKey(boolean byId, @Nullable String[] projection,
+            @Nullable String selection, @Nullable String sortOrder, @Nullable Page page) {
+        final StringBuilder key = new StringBuilder();
+        if (byId) {
+            key.append("id");
+        } else if (page != null) {
+            key.append(page.mKeyset ? "after" : "offset");
+        }
+        // The separator can't appear in a valid query.
+        key.append('\u0000');
+        if (projection != null) {
+            for (String column : projection) {
+                key.append(column).append(',');
+            }
+        }
+        key.append('\u0000');
+        if (selection != null) {
+            key.append(selection);
+        }
+        key.append('\u0000');
+        if (sortOrder != null) {
+            key.append(sortOrder);
+        }
+        return key.toString();
+    }
+
+    private static void addAll(List<Object> args, @Nullable String[] values) {
+        if (values != null) {
+            Collections.addAll(args, (Object[]) values);
+        }
+    }
+}
@@ -28,8 +28,10 @@ import android.database.Cursor;
 import android.net.Uri;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteQuery;
 import com.example.android.contentprovidersample.data.Cheese;
 import com.example.android.contentprovidersample.data.CheeseDao;
+import com.example.android.contentprovidersample.data.CheeseSeeder;
 import com.example.android.contentprovidersample.data.SampleDatabase;
 import java.util.ArrayList;
 import java.util.concurrent.Callable;
@@ -50,6 +52,25 @@ public class SampleContentProvider extends ContentProvider {
     public static final Uri URI_CHEESE = Uri.parse(
             "content://" + AUTHORITY + "/" + Cheese.TABLE_NAME);
 
+    /**
+     * Query parameter limiting the number of rows a query on {@link #URI_CHEESE} returns, at most
+     * {@link #MAX_LIMIT}.
+     */
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    /** Query parameter skipping the first rows of a query on {@link #URI_CHEESE}. */
+    public static final String QUERY_PARAMETER_OFFSET = "offset";
+
+    /**
+     * Query parameter returning the rows of {@link #URI_CHEESE} with an ID greater than the given
+     * one, in ID order. Pass the last ID of the previous page to get the next one; unlike
+     * {@link #QUERY_PARAMETER_OFFSET} this costs the same however far into the table it is.
+     */
+    public static final String QUERY_PARAMETER_AFTER = "after";
+
+    /** The largest page a query can ask for. */
+    public static final int MAX_LIMIT = 1000;
+
     /** The match code for some items in the Cheese table. */
     private static final int CODE_CHEESE_DIR = 1;
 
@@ -64,11 +85,67 @@ public class SampleContentProvider extends ContentProvider {
         MATCHER.addURI(AUTHORITY, Cheese.TABLE_NAME + "/*", CODE_CHEESE_ITEM);
     }
 
+    /** The columns of the Cheese table other apps can query. */
+    private static final String[] CHEESE_COLUMNS = {Cheese.COLUMN_ID, Cheese.COLUMN_NAME};
+
+    /** The number of query shapes whose SQL is kept. */
+    private static final int MAX_QUERY_SHAPES = 32;
+
+    /** The default window over which change notifications are coalesced. */
+    public static final long DEFAULT_NOTIFICATION_WINDOW_MS = 100;
+
+    /** The number of rows {@link #bulkInsert} converts and inserts at once. */
+    private static final int BULK_INSERT_CHUNK_SIZE = 500;
+
+    /** Builds and caches the queries on the Cheese table. */
+    private final QueryCache mCheeseQueries =
+            new QueryCache(Cheese.TABLE_NAME, Cheese.COLUMN_ID, CHEESE_COLUMNS, MAX_QUERY_SHAPES);
+
+    /** Sends the change notifications, coalesced over a window. */
+    private ChangeNotifier mNotifier;
+
     @Override
     public boolean onCreate() {
+        final Context context = getContext();
+        if (context == null) {
+            return false;
+        }
+        mNotifier = new ChangeNotifier(context.getContentResolver(),
+                DEFAULT_NOTIFICATION_WINDOW_MS);
+        // Builds the database here, on the main thread before any Binder call comes in, so the
+        // calls only ever take the lock-free path of getInstance(). This doesn't open it; that
+        // and seeding a new one happen in the background, so the first query doesn't pay for
+        // them. A query that comes earlier sees an empty table, and its observers are told once
+        // the cheeses are in.
+        SampleDatabase.getInstance(context).getSeeder().addListener(
+                new CheeseSeeder.Listener() {
+                    @Override
+                    public void onSeeded(int count) {
+                        mNotifier.notifyChange(URI_CHEESE);
+                    }
+                });
         return true;
     }
 
+    /**
+     * Sets how long changes are collected before observers are notified of them. Under a burst
+     * of writes, observers then requery about once per window instead of once per write. A
+     * window of {@code 0} notifies every change right away.
+     */
+    public void setNotificationWindow(long windowMillis) {
+        mNotifier.setWindow(windowMillis);
+    }
+
+    /**
+     * Queries the Cheese table. The projection, selection and sort order are honored, but may
+     * only refer to the {@code _id} and {@code name} columns, see {@link QueryCache}. Asking
+     * only for the columns you need keeps the cursor window, and the data sent across
+     * processes, small.
+     *
+     * <p>On {@link #URI_CHEESE}, the {@link #QUERY_PARAMETER_LIMIT} with either
+     * {@link #QUERY_PARAMETER_OFFSET} or {@link #QUERY_PARAMETER_AFTER} return one page of rows,
+     * for example {@code content://.../cheeses?after=1200&limit=100}.</p>
+     */
     @Nullable
     @Override
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
@@ -79,13 +156,15 @@ public class SampleContentProvider extends ContentProvider {
             if (context == null) {
                 return null;
             }
-            CheeseDao cheese = SampleDatabase.getInstance(context).cheese();
-            final Cursor cursor;
+            final SupportSQLiteQuery query;
             if (code == CODE_CHEESE_DIR) {
-                cursor = cheese.selectAll();
+                query = mCheeseQueries.query(projection, selection, selectionArgs, sortOrder,
+                        parsePage(uri));
             } else {
-                cursor = cheese.selectById(ContentUris.parseId(uri));
+                query = mCheeseQueries.queryById(ContentUris.parseId(uri), projection, selection,
+                        selectionArgs, sortOrder);
             }
+            final Cursor cursor = SampleDatabase.getInstance(context).query(query);
             cursor.setNotificationUri(context.getContentResolver(), uri);
             return cursor;
         } else {
@@ -93,6 +172,44 @@ public class SampleContentProvider extends ContentProvider {
         }
     }
 
+    @Nullable
+    private static QueryCache.Page parsePage(@NonNull Uri uri) {
+        final String limit = uri.getQueryParameter(QUERY_PARAMETER_LIMIT);
+        final String offset = uri.getQueryParameter(QUERY_PARAMETER_OFFSET);
+        final String after = uri.getQueryParameter(QUERY_PARAMETER_AFTER);
+        if (limit == null) {
+            if (offset != null || after != null) {
+                throw new IllegalArgumentException("Paging without a limit: " + uri);
+            }
+            return null;
+        }
+        final int limitValue = (int) parseNumber(uri, limit, 1, MAX_LIMIT);
+        if (after != null) {
+            if (offset != null) {
+                throw new IllegalArgumentException("Both an offset and an ID to page after: "
+                        + uri);
+            }
+            return QueryCache.Page.after(parseNumber(uri, after, Long.MIN_VALUE, Long.MAX_VALUE),
+                    limitValue);
+        }
+        return QueryCache.Page.offset(
+                offset == null ? 0 : (int) parseNumber(uri, offset, 0, Integer.MAX_VALUE),
+                limitValue);
+    }
+
+    private static long parseNumber(Uri uri, String value, long min, long max) {
+        final long number;
+        try {
+            number = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number " + value + " in " + uri, e);
+        }
+        if (number < min || number > max) {
+            throw new IllegalArgumentException("Out of range number " + value + " in " + uri);
+        }
+        return number;
+    }
+
     @Nullable
     @Override
     public String getType(@NonNull Uri uri) {
@@ -117,7 +234,7 @@ public class SampleContentProvider extends ContentProvider {
                 }
                 final long id = SampleDatabase.getInstance(context).cheese()
                         .insert(Cheese.fromContentValues(values));
-                context.getContentResolver().notifyChange(uri, null);
+                mNotifier.notifyChange(uri);
                 return ContentUris.withAppendedId(uri, id);
             case CODE_CHEESE_ITEM:
                 throw new IllegalArgumentException("Invalid URI, cannot insert with ID: " + uri);
@@ -139,7 +256,7 @@ public class SampleContentProvider extends ContentProvider {
                 }
                 final int count = SampleDatabase.getInstance(context).cheese()
                         .deleteById(ContentUris.parseId(uri));
-                context.getContentResolver().notifyChange(uri, null);
+                mNotifier.notifyChange(uri);
                 return count;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
@@ -161,13 +278,17 @@ public class SampleContentProvider extends ContentProvider {
                 cheese.id = ContentUris.parseId(uri);
                 final int count = SampleDatabase.getInstance(context).cheese()
                         .update(cheese);
-                context.getContentResolver().notifyChange(uri, null);
+                mNotifier.notifyChange(uri);
                 return count;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
     }
 
+    /**
+     * Applies the operations in one transaction. The URIs they change are notified after the
+     * transaction commits.
+     */
     @SuppressWarnings("RedundantThrows") /* This gets propagated up from the Callable */
     @NonNull
     @Override
@@ -179,7 +300,7 @@ public class SampleContentProvider extends ContentProvider {
             return new ContentProviderResult[0];
         }
         final SampleDatabase database = SampleDatabase.getInstance(context);
-        return database.runInTransaction(new Callable<ContentProviderResult[]>() {
+        return mNotifier.runBatch(database, new Callable<ContentProviderResult[]>() {
             @Override
             public ContentProviderResult[] call() throws OperationApplicationException {
                 return SampleContentProvider.super.applyBatch(operations);
@@ -187,8 +308,13 @@ public class SampleContentProvider extends ContentProvider {
         });
     }
 
+    /**
+     * Inserts all the rows in one transaction and notifies {@code uri} after it commits. The
+     * rows are converted and inserted {@link #BULK_INSERT_CHUNK_SIZE} at a time, so a large
+     * array isn't copied into entities all at once.
+     */
     @Override
-    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] valuesArray) {
+    public int bulkInsert(@NonNull final Uri uri, @NonNull final ContentValues[] valuesArray) {
         switch (MATCHER.match(uri)) {
             case CODE_CHEESE_DIR:
                 final Context context = getContext();
@@ -196,11 +322,16 @@ public class SampleContentProvider extends ContentProvider {
                     return 0;
                 }
                 final SampleDatabase database = SampleDatabase.getInstance(context);
-                final Cheese[] cheeses = new Cheese[valuesArray.length];
-                for (int i = 0; i < valuesArray.length; i++) {
-                    cheeses[i] = Cheese.fromContentValues(valuesArray[i]);
-                }
-                return database.cheese().insertAll(cheeses).length;
+                return mNotifier.runBatch(database, new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        insertInChunks(database.cheese(), valuesArray);
+                        if (valuesArray.length > 0) {
+                            mNotifier.notifyChange(uri);
+                        }
+                        return valuesArray.length;
+                    }
+                });
             case CODE_CHEESE_ITEM:
                 throw new IllegalArgumentException("Invalid URI, cannot insert with ID: " + uri);
             default:
@@ -208,4 +339,17 @@ public class SampleContentProvider extends ContentProvider {
         }
     }
 
+    private static void insertInChunks(CheeseDao dao, ContentValues[] valuesArray) {
+        Cheese[] chunk = new Cheese[Math.min(BULK_INSERT_CHUNK_SIZE, valuesArray.length)];
+        for (int start = 0; start < valuesArray.length; start += chunk.length) {
+            if (valuesArray.length - start < chunk.length) {
+                chunk = new Cheese[valuesArray.length - start];
+            }
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = Cheese.fromContentValues(valuesArray[start + i]);
+            }
+            dao.insertAll(chunk);
+        }
+    }
+
 }
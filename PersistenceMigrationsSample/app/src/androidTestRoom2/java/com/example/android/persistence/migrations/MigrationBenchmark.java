@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.persistence.migrations.MigrationBenchmarkHelper.Schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_1_2;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_2_3;
+
+/**
+ * Measures how long opening a database with a large number of users takes when it has to be
+ * migrated to version 3, from each older version, with the migrations the app registers.
+ * This is the time the first query waits for on the first launch after an update.
+ *
+ * @see MigrationBenchmarkHelper
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class MigrationBenchmark {
+
+    private static final String TEMPLATE_DB_NAME = "migration-benchmark-template-db";
+
+    private static final String TEST_DB_NAME = "migration-benchmark-db";
+
+    private static final int ITERATIONS = 3;
+
+    private static final Migration[] MIGRATIONS =
+            {MIGRATION_1_2, MIGRATION_2_3};
+
+    @Rule
+    public MigrationTestHelper mMigrationTestHelper =
+            new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+                    UsersDatabase.class.getCanonicalName(),
+                    new FrameworkSQLiteOpenHelperFactory());
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private final int mRows = MigrationBenchmarkHelper.rows();
+
+    @Before
+    public void setUp() {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+        mContext.deleteDatabase(TEST_DB_NAME);
+    }
+
+    @Test
+    public void from1To3() throws Exception {
+        // Version 1 was created with the SQLiteDatabase API.
+        new SqliteTestDbOpenHelper(mContext, TEMPLATE_DB_NAME).getWritableDatabase().close();
+        measure("room2 1->2->3", Schema.INTEGER_ID);
+    }
+
+    @Test
+    public void from2To3() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 2).close();
+        measure("room2 2->3", Schema.INTEGER_ID);
+    }
+
+    @Test
+    public void at3() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 3).close();
+        measure("room2 3, no migration", Schema.INTEGER_ID_WITH_DATE);
+    }
+
+    private void measure(String label, Schema schema) throws Exception {
+        MigrationBenchmarkHelper.seedUsers(mContext, TEMPLATE_DB_NAME, schema, mRows);
+        MigrationBenchmarkHelper.measure(mContext, label, TEMPLATE_DB_NAME, TEST_DB_NAME, mRows,
+                ITERATIONS, new MigrationBenchmarkHelper.Opener() {
+                    @Override
+                    public SupportSQLiteDatabase open(Context context, String name) {
+                        return Room.databaseBuilder(context, UsersDatabase.class, name)
+                                .addMigrations(MIGRATIONS)
+                                .build()
+                                .getOpenHelper()
+                                .getWritableDatabase();
+                    }
+                });
+    }
+}
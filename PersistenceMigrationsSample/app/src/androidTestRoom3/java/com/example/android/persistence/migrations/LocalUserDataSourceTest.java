@@ -25,7 +25,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Integration tests for the {@link LocalUserDataSource} implementation with Room.
@@ -90,4 +93,44 @@ public class LocalUserDataSourceTest {
         User dbUser = mDataSource.getUser();
         assertNull(dbUser);
     }
+
+    @Test
+    public void getUserById() {
+        mDataSource.insertOrUpdateUser(USER);
+
+        assertEquals(mDataSource.getUserById(USER.getId()).getUserName(), USER.getUserName());
+        assertNull(mDataSource.getUserById("unknown"));
+    }
+
+    @Test
+    public void getUsersByIdsInBatches() {
+        // More users than are bound to one query
+        List<User> users = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < UserDataSource.MAX_IDS_PER_QUERY + 10; i++) {
+            users.add(new User("id" + i, "user" + i, USER.getDate()));
+            ids.add("id" + i);
+        }
+        mDataSource.insertOrUpdateUsers(users);
+        ids.add("unknown");
+
+        assertEquals(mDataSource.getUsersByIds(ids).size(), users.size());
+    }
+
+    @Test
+    public void getUsersByNamePrefix() {
+        mDataSource.insertOrUpdateUsers(Arrays.asList(
+                new User("1", "bob", USER.getDate()),
+                new User("2", "alice", USER.getDate()),
+                new User("3", "alfred", USER.getDate()),
+                new User("4", "Alan", USER.getDate())));
+
+        // Matches are case sensitive and ordered by name
+        List<User> users = mDataSource.getUsersByNamePrefix("al", 10);
+        assertEquals(users.size(), 2);
+        assertEquals(users.get(0).getUserName(), "alfred");
+        assertEquals(users.get(1).getUserName(), "alice");
+
+        assertEquals(mDataSource.getUsersByNamePrefix("al", 1).size(), 1);
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.android.persistence.migrations.MigrationBenchmarkHelper.Schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_3_4;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_4_5;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATIONS;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures how long opening a database with a large number of users takes when it has to be
+ * migrated to version 5, from each older version, with {@link UsersDatabase#MIGRATIONS}, the
+ * migrations the app registers. This is the time the first query waits for on the first launch
+ * after an update. The deferred migrations leave copying the users to a {@link UsersCopy},
+ * which the copy benchmarks measure on their own, and {@link #from3To5Eager} measures the
+ * eager migration they replace, for comparison.
+ *
+ * @see MigrationBenchmarkHelper
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class MigrationBenchmark {
+
+    private static final String TAG = "MigrationBenchmark";
+
+    private static final String TEMPLATE_DB_NAME = "migration-benchmark-template-db";
+
+    private static final String TEST_DB_NAME = "migration-benchmark-db";
+
+    private static final int ITERATIONS = 3;
+
+    /** Counts the users copied so far and those still waiting in the old table. */
+    private static final String COUNT_USERS_DEFERRED = "SELECT (SELECT COUNT(*) FROM users)"
+            + " + (SELECT COUNT(*) FROM " + UsersCopy.OLD_TABLE + ")";
+
+    @Rule
+    public MigrationTestHelper mMigrationTestHelper =
+            new MigrationTestHelper(InstrumentationRegistry.getInstrumentation(),
+                    UsersDatabase.class.getCanonicalName(),
+                    new FrameworkSQLiteOpenHelperFactory());
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private final int mRows = MigrationBenchmarkHelper.rows();
+
+    @Before
+    public void setUp() {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+        mContext.deleteDatabase(TEST_DB_NAME);
+    }
+
+    @Test
+    public void from1To5() throws Exception {
+        createVersion1();
+        measure("room3 1->4 deferred->5", Schema.INTEGER_ID, MIGRATIONS,
+                COUNT_USERS_DEFERRED);
+    }
+
+    @Test
+    public void from2To5() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 2).close();
+        measure("room3 2->3->4 deferred->5", Schema.INTEGER_ID, MIGRATIONS,
+                COUNT_USERS_DEFERRED);
+    }
+
+    @Test
+    public void from3To5() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 3).close();
+        measure("room3 3->4 deferred->5", Schema.INTEGER_ID_WITH_DATE, MIGRATIONS,
+                COUNT_USERS_DEFERRED);
+    }
+
+    @Test
+    public void from3To5Eager() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 3).close();
+        measure("room3 3->4 eager->5", Schema.INTEGER_ID_WITH_DATE,
+                new Migration[]{MIGRATION_3_4, MIGRATION_4_5},
+                MigrationBenchmarkHelper.COUNT_USERS);
+    }
+
+    @Test
+    public void from4To5() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 4).close();
+        measure("room3 4->5", Schema.TEXT_ID_WITH_DATE, MIGRATIONS,
+                MigrationBenchmarkHelper.COUNT_USERS);
+    }
+
+    @Test
+    public void at5() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 5).close();
+        measure("room3 5, no migration", Schema.TEXT_ID_WITH_DATE, MIGRATIONS,
+                MigrationBenchmarkHelper.COUNT_USERS);
+    }
+
+    @Test
+    public void copyAfterDeferredFrom1() throws Exception {
+        createVersion1();
+        measureCopy("room3 1->4 deferred->5, copy", Schema.INTEGER_ID);
+    }
+
+    @Test
+    public void copyAfterDeferredFrom3() throws Exception {
+        mMigrationTestHelper.createDatabase(TEMPLATE_DB_NAME, 3).close();
+        measureCopy("room3 3->4 deferred->5, copy", Schema.INTEGER_ID_WITH_DATE);
+    }
+
+    private void createVersion1() {
+        // Version 1 was created with the SQLiteDatabase API.
+        new SqliteTestDbOpenHelper(mContext, TEMPLATE_DB_NAME).getWritableDatabase().close();
+    }
+
+    private void measure(String label, Schema schema, final Migration[] migrations,
+            String countQuery) throws Exception {
+        MigrationBenchmarkHelper.seedUsers(mContext, TEMPLATE_DB_NAME, schema, mRows);
+        MigrationBenchmarkHelper.measure(mContext, label, TEMPLATE_DB_NAME, TEST_DB_NAME, mRows,
+                ITERATIONS, new MigrationBenchmarkHelper.Opener() {
+                    @Override
+                    public SupportSQLiteDatabase open(Context context, String name) {
+                        // Like the app, but without starting the copy, which runs afterwards.
+                        return Room.databaseBuilder(context, UsersDatabase.class, name)
+                                .addMigrations(migrations)
+                                .build()
+                                .getOpenHelper()
+                                .getWritableDatabase();
+                    }
+                }, countQuery);
+    }
+
+    /**
+     * Opens copies of the template with {@link UsersDatabase#MIGRATIONS} and measures how long
+     * copying the users a deferred migration left behind takes, logging each copy.
+     */
+    private void measureCopy(String label, Schema schema) throws Exception {
+        MigrationBenchmarkHelper.seedUsers(mContext, TEMPLATE_DB_NAME, schema, mRows);
+        for (int i = 0; i < ITERATIONS; i++) {
+            MigrationBenchmarkHelper.copyDatabase(mContext, TEMPLATE_DB_NAME, TEST_DB_NAME);
+            UsersDatabase database = Room.databaseBuilder(mContext, UsersDatabase.class,
+                    TEST_DB_NAME)
+                    .addMigrations(MIGRATIONS)
+                    .build();
+            try {
+                // Runs the deferred migration, which isn't part of the copy.
+                database.getOpenHelper().getWritableDatabase();
+                UsersCopy copy = database.usersCopy();
+                int chunks = 0;
+                long start = SystemClock.elapsedRealtime();
+                while (copy.copyNextChunk()) {
+                    chunks++;
+                }
+                long duration = SystemClock.elapsedRealtime() - start;
+                Log.i(TAG, String.format(Locale.US, "%s: %d users in %d chunks in %d ms",
+                        label, mRows, chunks, duration));
+                assertEquals(mRows, countUsers(database));
+            } finally {
+                database.close();
+            }
+        }
+    }
+
+    private static int countUsers(UsersDatabase database) {
+        Cursor cursor = database.query(MigrationBenchmarkHelper.COUNT_USERS, null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package com.example.android.persistence.migrations;
 
 import android.content.ContentValues;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
 import androidx.room.Room;
@@ -34,16 +35,23 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 
 import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_1_2;
 import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_1_4;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_1_4_DEFERRED;
 import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_2_3;
 import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_3_4;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_3_4_DEFERRED;
+import static com.example.android.persistence.migrations.UsersDatabase.MIGRATION_4_5;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
- * Test the migration from different database schema versions to version 4.
+ * Test the migration from different database schema versions to versions 4 and 5.
  */
 @RunWith(AndroidJUnit4.class)
 public class MigrationTest {
@@ -159,10 +167,191 @@ public class MigrationTest {
         assertEquals(dbUser.getDate(), USER.getDate());
     }
 
+    @Test
+    public void migrationFrom4To5_addsUsernameIndex() throws IOException {
+        SupportSQLiteDatabase db = mMigrationTestHelper.createDatabase(TEST_DB_NAME, 4);
+        insertUser(USER.getId(), USER.getUserName(), DateConverter.toTimestamp(USER.getDate()), db);
+        db.close();
+
+        // Validating checks the indices too, so this fails if the index is missing
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 5, true, MIGRATION_4_5);
+
+        List<User> users = getMigratedRoomDatabase().userDao()
+                .getUsersByNameRange("user", "uses", 10);
+        assertEquals(users.size(), 1);
+        assertEquals(users.get(0).getId(), USER.getId());
+    }
+
+    @Test
+    public void deferredMigrationFrom3To4_readsOldTableUntilCopied() throws IOException {
+        createVersion3WithUsers(3);
+
+        // The old table is left for the copy, so it isn't dropped yet
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_3_4_DEFERRED).close();
+
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        // Nothing was copied, the user comes from the old table
+        assertEquals(0, countUsers(usersDatabase));
+        assertEquals(usersDatabase.userDao().getUser().getId(), "1");
+
+        UsersCopy copy = new UsersCopy(usersDatabase, 2);
+        assertTrue(copy.copyNextChunk());
+        assertEquals(2, countUsers(usersDatabase));
+        assertEquals(usersDatabase.userDao().getUser().getId(), "1");
+
+        copyAll(copy);
+        assertEquals(3, countUsers(usersDatabase));
+        assertFalse(hasTable(usersDatabase, UsersCopy.OLD_TABLE));
+        assertFalse(hasTable(usersDatabase, UsersCopy.PROGRESS_TABLE));
+        User dbUser = usersDatabase.userDao().getUser();
+        assertEquals(dbUser.getId(), "1");
+        assertEquals(dbUser.getUserName(), USER.getUserName());
+        assertEquals(dbUser.getDate(), USER.getDate());
+    }
+
+    @Test
+    public void deferredMigrationFrom3To4_resumesFromCheckpoint() throws IOException {
+        createVersion3WithUsers(5);
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_3_4_DEFERRED).close();
+
+        // Copy one chunk, then stop as if the process was killed
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        assertTrue(new UsersCopy(usersDatabase, 2).copyNextChunk());
+        usersDatabase.close();
+
+        usersDatabase = getDeferredRoomDatabase();
+        copyAll(new UsersCopy(usersDatabase, 2));
+        assertEquals(5, countUsers(usersDatabase));
+    }
+
+    @Test
+    public void deferredMigrationFrom3To4_keepsUsersWrittenDuringCopy() throws IOException {
+        createVersion3WithUsers(3);
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_3_4_DEFERRED).close();
+
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        usersDatabase.userDao().insertUser(new User("2", "new username", USER.getDate()));
+        copyAll(new UsersCopy(usersDatabase, 2));
+
+        assertEquals(3, countUsers(usersDatabase));
+        assertEquals("new username", queryUserName(usersDatabase, "2"));
+    }
+
+    @Test
+    public void deferredMigrationFrom3To4_deleteAllUsersDuringCopy() throws IOException {
+        createVersion3WithUsers(3);
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_3_4_DEFERRED).close();
+
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        UsersCopy copy = new UsersCopy(usersDatabase, 2);
+        assertTrue(copy.copyNextChunk());
+        usersDatabase.userDao().deleteAllUsers();
+
+        assertEquals(null, usersDatabase.userDao().getUser());
+        assertFalse(copy.copyNextChunk());
+        assertEquals(0, countUsers(usersDatabase));
+    }
+
+    @Test
+    public void deferredMigrationFrom3To4_looksUpUsersNotCopiedYet() throws IOException {
+        createVersion3WithUsers(3);
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_3_4_DEFERRED).close();
+
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        assertTrue(new UsersCopy(usersDatabase, 1).copyNextChunk());
+        usersDatabase.userDao().insertUser(new User("3", "renamed", USER.getDate()));
+        UserDao userDao = usersDatabase.userDao();
+
+        // 1 was copied, 2 is still in the old table, 3 was written since the migration
+        assertEquals(userDao.getUserById("1").getUserName(), USER.getUserName());
+        assertEquals(userDao.getUserById("2").getUserName(), USER.getUserName());
+        assertEquals(userDao.getUserById("3").getUserName(), "renamed");
+        assertEquals(userDao.getUsersByIds(Arrays.asList("1", "2", "3", "4")).size(), 3);
+        assertEquals(userDao.getUsersByNameRange(USER.getUserName(),
+                USER.getUserName() + UserDataSource.NAME_PREFIX_END, 10).size(), 2);
+    }
+
+    @Test
+    public void deferredMigrationFrom1To4_containsCorrectData() throws IOException {
+        SqliteDatabaseTestHelper.insertUser(1, USER.getUserName(), mSqliteTestDbHelper);
+
+        mMigrationTestHelper.runMigrationsAndValidate(TEST_DB_NAME, 4, false,
+                MIGRATION_1_4_DEFERRED).close();
+
+        UsersDatabase usersDatabase = getDeferredRoomDatabase();
+        copyAll(new UsersCopy(usersDatabase, 2));
+        User dbUser = usersDatabase.userDao().getUser();
+        assertEquals(dbUser.getId(), "1");
+        assertEquals(dbUser.getUserName(), USER.getUserName());
+        assertEquals(dbUser.getDate().getTime(), 0);
+    }
+
+    private void createVersion3WithUsers(int count) throws IOException {
+        SupportSQLiteDatabase db = mMigrationTestHelper.createDatabase(TEST_DB_NAME, 3);
+        for (int id = 1; id <= count; id++) {
+            insertUser(id, USER.getUserName(), DateConverter.toTimestamp(USER.getDate()), db);
+        }
+        db.close();
+    }
+
+    private static void copyAll(UsersCopy copy) {
+        while (copy.copyNextChunk()) {
+            // Copy the next chunk
+        }
+    }
+
+    private static int countUsers(UsersDatabase database) {
+        Cursor cursor = database.query("SELECT COUNT(*) FROM users", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static boolean hasTable(UsersDatabase database, String name) {
+        Cursor cursor = database.query(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new Object[]{name});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static String queryUserName(UsersDatabase database, String id) {
+        Cursor cursor = database.query("SELECT username FROM users WHERE userid = ?",
+                new Object[]{id});
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private UsersDatabase getDeferredRoomDatabase() {
+        UsersDatabase database = Room.databaseBuilder(ApplicationProvider.getApplicationContext(),
+                UsersDatabase.class, TEST_DB_NAME)
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4_DEFERRED,
+                        MIGRATION_1_4_DEFERRED, MIGRATION_4_5)
+                .build();
+        mMigrationTestHelper.closeWhenFinished(database);
+        return database;
+    }
+
     private UsersDatabase getMigratedRoomDatabase() {
         UsersDatabase database = Room.databaseBuilder(ApplicationProvider.getApplicationContext(),
                 UsersDatabase.class, TEST_DB_NAME)
-                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_1_4)
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_1_4,
+                        MIGRATION_4_5)
                 .build();
         // close the database and release any stream resources when the test finishes
         mMigrationTestHelper.closeWhenFinished(database);
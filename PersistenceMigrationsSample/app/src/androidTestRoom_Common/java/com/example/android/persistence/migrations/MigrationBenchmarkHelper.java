@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Seeds databases of each schema version with a large number of users, and measures how long
+ * opening them takes, migrations included, with the peak memory and file size while it runs.
+ *
+ * <p>The number of users defaults to {@link #DEFAULT_ROWS}, few enough for the benchmarks to run
+ * with the rest of the connected tests. For real numbers, seed a production-sized table with the
+ * {@code migrationBenchmarkRows} instrumentation argument, e.g.
+ * {@code -Pandroid.testInstrumentationRunnerArguments.migrationBenchmarkRows=1000000}.
+ * Results are logged under the {@code MigrationBenchmark} tag.</p>
+ */
+public class MigrationBenchmarkHelper {
+
+    private static final String TAG = "MigrationBenchmark";
+
+    public static final String ARGUMENT_ROWS = "migrationBenchmarkRows";
+
+    public static final int DEFAULT_ROWS = 1_000;
+
+    /** Counts the users, see {@link #measure}. */
+    public static final String COUNT_USERS = "SELECT COUNT(*) FROM users";
+
+    /** Number of rows inserted per transaction while seeding. */
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
+    /** How often memory and file size are sampled while a database opens. */
+    private static final long SAMPLE_INTERVAL_MS = 5;
+
+    /** The users table of each schema version, as far as seeding it is concerned. */
+    public enum Schema {
+        /** Version 1, created with the SQLiteDatabase API, and version 2, the same in Room. */
+        INTEGER_ID(false, false),
+        /** Version 3: adds {@code last_update}. */
+        INTEGER_ID_WITH_DATE(false, true),
+        /** Version 4: {@code userid} is a String. */
+        TEXT_ID_WITH_DATE(true, true);
+
+        final boolean mTextId;
+
+        final boolean mHasDate;
+
+        Schema(boolean textId, boolean hasDate) {
+            mTextId = textId;
+            mHasDate = hasDate;
+        }
+    }
+
+    /** Opens a database, running the migrations it needs. */
+    public interface Opener {
+        SupportSQLiteDatabase open(Context context, String name);
+    }
+
+    private MigrationBenchmarkHelper() {
+    }
+
+    public static int rows() {
+        Bundle arguments = InstrumentationRegistry.getArguments();
+        String rows = arguments.getString(ARGUMENT_ROWS);
+        return rows == null ? DEFAULT_ROWS : Integer.parseInt(rows);
+    }
+
+    /**
+     * Inserts {@code rows} users into the existing, empty users table of the database called
+     * {@code name}, in transactions of {@link #SEED_CHUNK_SIZE} rows.
+     */
+    public static void seedUsers(Context context, String name, Schema schema, int rows) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                context.getDatabasePath(name).getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+        try {
+            SQLiteStatement insert = db.compileStatement(schema.mHasDate
+                    ? "INSERT INTO users (userid, username, last_update) VALUES (?, ?, ?)"
+                    : "INSERT INTO users (userid, username) VALUES (?, ?)");
+            long now = System.currentTimeMillis();
+            for (int start = 0; start < rows; start += SEED_CHUNK_SIZE) {
+                db.beginTransaction();
+                try {
+                    int end = Math.min(rows, start + SEED_CHUNK_SIZE);
+                    for (int i = start; i < end; i++) {
+                        if (schema.mTextId) {
+                            insert.bindString(1, String.valueOf(i));
+                        } else {
+                            insert.bindLong(1, i);
+                        }
+                        insert.bindString(2, "user" + i);
+                        if (schema.mHasDate) {
+                            insert.bindLong(3, now - i);
+                        }
+                        insert.executeInsert();
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            insert.close();
+        } finally {
+            db.close();
+        }
+    }
+
+    /**
+     * Copies {@code template} to {@code name} {@code iterations} times and opens the copy with
+     * {@code opener}, logging what each open cost. Checks that no user was lost.
+     *
+     * @return The result of the slowest iteration.
+     */
+    public static Result measure(Context context, String label, String template, String name,
+            int rows, int iterations, Opener opener) throws Exception {
+        return measure(context, label, template, name, rows, iterations, opener, COUNT_USERS);
+    }
+
+    /**
+     * Same as {@link #measure(Context, String, String, String, int, int, Opener)}, but checks
+     * that no user was lost with {@code countQuery}, e.g. for a migration that leaves some of
+     * the users in another table.
+     */
+    public static Result measure(Context context, String label, String template, String name,
+            int rows, int iterations, Opener opener, String countQuery) throws Exception {
+        Result slowest = null;
+        for (int i = 0; i < iterations; i++) {
+            copyDatabase(context, template, name);
+            Result result = measureOpen(context, label, name, rows, opener, countQuery);
+            Log.i(TAG, result.toString());
+            if (slowest == null || result.durationMs > slowest.durationMs) {
+                slowest = result;
+            }
+        }
+        context.deleteDatabase(name);
+        return slowest;
+    }
+
+    private static Result measureOpen(Context context, String label, String name, int rows,
+            Opener opener, String countQuery) throws InterruptedException {
+        File file = context.getDatabasePath(name);
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        Sampler sampler = new Sampler(file);
+        sampler.sample();
+        long heapBefore = sampler.mPeakHeapBytes;
+        long nativeBefore = sampler.mPeakNativeBytes;
+        long fileBefore = sampler.mPeakFileBytes;
+        sampler.start();
+
+        long start = SystemClock.elapsedRealtime();
+        SupportSQLiteDatabase db = opener.open(context, name);
+        long duration = SystemClock.elapsedRealtime() - start;
+
+        sampler.finish();
+        try {
+            Cursor cursor = db.query(countQuery);
+            try {
+                cursor.moveToFirst();
+                assertEquals(rows, cursor.getInt(0));
+            } finally {
+                cursor.close();
+            }
+        } finally {
+            db.close();
+        }
+        return new Result(label, rows, duration, sampler.mPeakHeapBytes - heapBefore,
+                sampler.mPeakNativeBytes - nativeBefore, fileBefore, sampler.mPeakFileBytes,
+                databaseSize(file));
+    }
+
+    /** Replaces the database called {@code to} with a copy of {@code from}. */
+    public static void copyDatabase(Context context, String from, String to) throws IOException {
+        context.deleteDatabase(to);
+        File source = context.getDatabasePath(from);
+        File target = context.getDatabasePath(to);
+        FileInputStream in = new FileInputStream(source);
+        try {
+            FileOutputStream out = new FileOutputStream(target);
+            try {
+                FileChannel channel = in.getChannel();
+                channel.transferTo(0, channel.size(), out.getChannel());
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /** The size of the database file with its rollback journal and write-ahead log. */
+    static long databaseSize(File file) {
+        return file.length() + new File(file.getPath() + "-journal").length()
+                + new File(file.getPath() + "-wal").length();
+    }
+
+    /** What opening a database cost. Memory is the growth over what was in use before. */
+    public static final class Result {
+
+        public final String label;
+
+        public final int rows;
+
+        public final long durationMs;
+
+        public final long peakHeapBytes;
+
+        public final long peakNativeBytes;
+
+        public final long fileBytesBefore;
+
+        public final long peakFileBytes;
+
+        public final long fileBytesAfter;
+
+        Result(String label, int rows, long durationMs, long peakHeapBytes,
+                long peakNativeBytes, long fileBytesBefore, long peakFileBytes,
+                long fileBytesAfter) {
+            this.label = label;
+            this.rows = rows;
+            this.durationMs = durationMs;
+            this.peakHeapBytes = peakHeapBytes;
+            this.peakNativeBytes = peakNativeBytes;
+            this.fileBytesBefore = fileBytesBefore;
+            this.peakFileBytes = peakFileBytes;
+            this.fileBytesAfter = fileBytesAfter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d users in %d ms, peak heap +%d KB, "
+                            + "peak native +%d KB, file %d KB -> peak %d KB -> %d KB",
+                    label, rows, durationMs, peakHeapBytes / 1024, peakNativeBytes / 1024,
+                    fileBytesBefore / 1024, peakFileBytes / 1024, fileBytesAfter / 1024);
+        }
+    }
+
+    /**
+     * Samples the used Java heap, the allocated native heap, where SQLite's page cache lives,
+     * and the size of the database files on a thread of its own, keeping the peaks.
+     */
+    private static class Sampler extends Thread {
+
+        private final File mFile;
+
+        private volatile boolean mRunning = true;
+
+        long mPeakHeapBytes;
+
+        long mPeakNativeBytes;
+
+        long mPeakFileBytes;
+
+        Sampler(File file) {
+            super("migration-benchmark-sampler");
+            mFile = file;
+        }
+
+        @Override
+        public void run() {
+            while (mRunning) {
+                sample();
+                SystemClock.sleep(SAMPLE_INTERVAL_MS);
+            }
+        }
+
+        synchronized void sample() {
+            Runtime runtime = Runtime.getRuntime();
+            mPeakHeapBytes = Math.max(mPeakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+            mPeakNativeBytes = Math.max(mPeakNativeBytes, Debug.getNativeHeapAllocatedSize());
+            mPeakFileBytes = Math.max(mPeakFileBytes, databaseSize(mFile));
+        }
+
+        void finish() throws InterruptedException {
+            mRunning = false;
+            join();
+            sample();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.COLUMN_NAME_ENTRY_ID;
+import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.COLUMN_NAME_USERNAME;
+import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.TABLE_NAME;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the operations of {@link LocalUserDataSource}, which keeps the database open, with
+ * opening and closing it around every operation, as the data source used to.
+ *
+ * <p>The reported time is per operation, or per batch of {@link #BATCH_SIZE} users for the
+ * batch benchmarks; operations per second are 10^9 divided by it.</p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class LocalUserDataSourceBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final User USER = new User(1, "username");
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private LocalUserDataSource mDataSource;
+
+    private UsersDbHelper mDbHelper;
+
+    private List<User> mBatch;
+
+    @Before
+    public void setUp() {
+        mDataSource = LocalUserDataSource.getInstance(mContext);
+        mDbHelper = new UsersDbHelper(mContext);
+        mBatch = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= BATCH_SIZE; id++) {
+            mBatch.add(new User(id, "user" + id));
+        }
+        mDataSource.insertOrUpdateUser(USER);
+    }
+
+    @After
+    public void tearDown() {
+        mDataSource.deleteAllUsers();
+        mDataSource.close();
+        mDbHelper.close();
+    }
+
+    @Test
+    public void getUser() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mDataSource.getUser();
+        }
+    }
+
+    @Test
+    public void getUser_openPerCall() {
+        // Only the connection opened by each call is left
+        mDataSource.close();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            getUserOpenPerCall();
+        }
+    }
+
+    @Test
+    public void insertOrUpdateUser() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mDataSource.insertOrUpdateUser(USER);
+        }
+    }
+
+    @Test
+    public void insertOrUpdateUser_openPerCall() {
+        mDataSource.close();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            insertOrUpdateUserOpenPerCall(USER);
+        }
+    }
+
+    @Test
+    public void insertOrUpdateUsers() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mDataSource.insertOrUpdateUsers(mBatch);
+        }
+    }
+
+    @Test
+    public void insertOrUpdateUsers_oneByOne() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (User user : mBatch) {
+                mDataSource.insertOrUpdateUser(user);
+            }
+        }
+    }
+
+    @Test
+    public void insertOrUpdateUsers_openPerCall() {
+        mDataSource.close();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (User user : mBatch) {
+                insertOrUpdateUserOpenPerCall(user);
+            }
+        }
+    }
+
+    /** What {@link LocalUserDataSource#getUser()} did before it kept the database open. */
+    private User getUserOpenPerCall() {
+        User user = null;
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor c = db.query(TABLE_NAME, new String[]{COLUMN_NAME_ENTRY_ID, COLUMN_NAME_USERNAME},
+                null, null, null, null, null, "1");
+        if (c.moveToNext()) {
+            user = new User(c.getInt(0), c.getString(1));
+        }
+        c.close();
+        db.close();
+        return user;
+    }
+
+    /** What {@link LocalUserDataSource#insertOrUpdateUser(User)} did before. */
+    private void insertOrUpdateUserOpenPerCall(User user) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NAME_ENTRY_ID, user.getId());
+        values.put(COLUMN_NAME_USERNAME, user.getUserName());
+        db.insertWithOnConflict(TABLE_NAME, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        db.close();
+    }
+}
@@ -19,6 +19,9 @@ package com.example.android.persistence.migrations;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import org.junit.After;
@@ -26,6 +29,10 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Integration tests for {@link LocalUserDataSource}.
  */
@@ -84,4 +91,88 @@ public class LocalUserDataSourceTest {
         User dbUser = mDataSource.getUser();
         assertNull(dbUser);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void insertOrUpdateUsers() {
+        // Given that we have a user in the data source
+        mDataSource.insertOrUpdateUser(USER);
+
+        // When inserting a batch of users that contains an update of that user
+        List<User> users = new ArrayList<>();
+        users.add(new User(USER.getId(), "new username"));
+        for (int id = 2; id <= 10; id++) {
+            users.add(new User(id, "user" + id));
+        }
+        mDataSource.insertOrUpdateUsers(users);
+
+        // All users are in the data source, the first one updated
+        assertEquals(countUsers(), 10);
+        assertEquals(mDataSource.getUser().getUserName(), "new username");
+    }
+
+    @Test
+    public void reopensAfterClose() {
+        mDataSource.insertOrUpdateUser(USER);
+
+        mDataSource.close();
+
+        // The next operations open the database again
+        assertEquals(mDataSource.getUser().getId(), USER.getId());
+        mDataSource.insertOrUpdateUser(new User(USER.getId(), "new username"));
+        assertEquals(mDataSource.getUser().getUserName(), "new username");
+    }
+
+    @Test
+    public void getUserById() {
+        mDataSource.insertOrUpdateUser(USER);
+
+        // Ids are passed as Strings
+        assertEquals(mDataSource.getUserById("1").getUserName(), USER.getUserName());
+        assertNull(mDataSource.getUserById("2"));
+    }
+
+    @Test
+    public void getUsersByIdsInBatches() {
+        // More users than are bound to one query
+        List<User> users = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int id = 1; id <= UserDataSource.MAX_IDS_PER_QUERY + 10; id++) {
+            users.add(new User(id, "user" + id));
+            ids.add(String.valueOf(id));
+        }
+        mDataSource.insertOrUpdateUsers(users);
+        ids.add("0");
+
+        assertEquals(mDataSource.getUsersByIds(ids).size(), users.size());
+    }
+
+    @Test
+    public void getUsersByNamePrefix() {
+        mDataSource.insertOrUpdateUsers(Arrays.asList(
+                new User(1, "bob"),
+                new User(2, "alice"),
+                new User(3, "alfred"),
+                new User(4, "Alan")));
+
+        // Matches are case sensitive and ordered by name
+        List<User> users = mDataSource.getUsersByNamePrefix("al", 10);
+        assertEquals(users.size(), 2);
+        assertEquals(users.get(0).getUserName(), "alfred");
+        assertEquals(users.get(1).getUserName(), "alice");
+
+        assertEquals(mDataSource.getUsersByNamePrefix("al", 1).size(), 1);
+    }
+
+    private int countUsers() {
+        SQLiteDatabase db = new UsersDbHelper(ApplicationProvider.getApplicationContext())
+                .getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM users", null);
+        try {
+            cursor.moveToFirst();
+            return cursor.getInt(0);
+        } finally {
+            cursor.close();
+            db.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import com.example.android.persistence.migrations.MigrationBenchmarkHelper.Schema;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures how long opening the version 1 database with a large number of users takes. There is
+ * no migration in this flavor; this is the baseline the migrations of the Room flavors add to.
+ *
+ * @see MigrationBenchmarkHelper
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class MigrationBenchmark {
+
+    private static final String TEMPLATE_DB_NAME = "migration-benchmark-template-db";
+
+    private static final String TEST_DB_NAME = "migration-benchmark-db";
+
+    private static final int ITERATIONS = 3;
+
+    private final Context mContext = ApplicationProvider.getApplicationContext();
+
+    private final int mRows = MigrationBenchmarkHelper.rows();
+
+    @After
+    public void tearDown() {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+        mContext.deleteDatabase(TEST_DB_NAME);
+    }
+
+    @Test
+    public void at1() throws Exception {
+        mContext.deleteDatabase(TEMPLATE_DB_NAME);
+        new SqliteTestDbOpenHelper(mContext, TEMPLATE_DB_NAME).getWritableDatabase().close();
+        MigrationBenchmarkHelper.seedUsers(mContext, TEMPLATE_DB_NAME, Schema.INTEGER_ID, mRows);
+        MigrationBenchmarkHelper.measure(mContext, "sqlite 1, no migration", TEMPLATE_DB_NAME,
+                TEST_DB_NAME, mRows, ITERATIONS, new MigrationBenchmarkHelper.Opener() {
+                    @Override
+                    public SupportSQLiteDatabase open(Context context, String name) {
+                        return openVersion1(context, name);
+                    }
+                });
+    }
+
+    /** Opens the database the way {@link UsersDbHelper} does, under another name. */
+    private static SupportSQLiteDatabase openVersion1(Context context, String name) {
+        SupportSQLiteOpenHelper.Configuration configuration =
+                SupportSQLiteOpenHelper.Configuration.builder(context)
+                        .name(name)
+                        .callback(new SupportSQLiteOpenHelper.Callback(
+                                UsersDbHelper.DATABASE_VERSION) {
+                            @Override
+                            public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                // The template already has the table.
+                            }
+
+                            @Override
+                            public void onUpgrade(@NonNull SupportSQLiteDatabase db,
+                                    int oldVersion, int newVersion) {
+                                // Not required as at version 1
+                            }
+                        })
+                        .build();
+        return new FrameworkSQLiteOpenHelperFactory().create(configuration).getWritableDatabase();
+    }
+}
@@ -19,40 +19,82 @@ package com.example.android.persistence.migrations;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Global executor pools for the whole application.
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
  * webservice requests).
+ * <p>
+ * Disk work follows SQLite's model of many readers and one writer: {@link #diskIO()} runs writes
+ * one at a time, in submission order, on a single writer thread, and {@link #diskRead()} runs
+ * reads concurrently on a pool of their own. A read never overtakes a write submitted before it,
+ * so it always sees that write. The sizes of the pools come from a {@link Config}, and
+ * {@link #getStats()} tells how long tasks queue in each of them.
  */
 public class AppExecutors {
 
-    private static final int THREAD_COUNT = 3;
-
     private final Executor diskIO;
 
+    private final Executor diskRead;
+
     private final Executor networkIO;
 
     private final Executor mainThread;
 
+    private final List<ExecutorPool> pools;
+
     AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
         this.diskIO = diskIO;
+        this.diskRead = diskIO;
         this.networkIO = networkIO;
         this.mainThread = mainThread;
+        this.pools = Collections.emptyList();
     }
 
     public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(THREAD_COUNT),
-                new MainThreadExecutor());
+        this(Config.DEFAULT);
+    }
+
+    public AppExecutors(@NonNull Config config) {
+        ExecutorPool readerPool = new ExecutorPool("disk-read", config.readerThreads,
+                config.readerQueueCapacity);
+        // A single thread, so writes run in order and SQLite never sees two writers at once.
+        ExecutorPool writerPool = new ExecutorPool("disk-write", 1, config.writerQueueCapacity);
+        ExecutorPool networkPool = new ExecutorPool("network", config.networkThreads,
+                config.networkQueueCapacity);
+        WriteExecutor writes = new WriteExecutor(
+                writerPool.executor(ExecutorPool.Priority.BACKGROUND));
+        this.diskIO = writes;
+        this.diskRead = new ReadExecutor(
+                readerPool.executor(ExecutorPool.Priority.USER_VISIBLE), writes);
+        this.networkIO = networkPool.executor(ExecutorPool.Priority.BACKGROUND);
+        this.mainThread = new MainThreadExecutor();
+        this.pools = Arrays.asList(readerPool, writerPool, networkPool);
     }
 
+    /**
+     * Executor for disk writes. Tasks run one at a time, in submission order.
+     */
     public Executor diskIO() {
         return diskIO;
     }
 
+    /**
+     * Executor for disk reads the user is waiting for. Reads run concurrently with each other and
+     * with {@link #diskIO()}, but only once the writes submitted before them are done.
+     */
+    public Executor diskRead() {
+        return diskRead;
+    }
+
     public Executor networkIO() {
         return networkIO;
     }
@@ -61,6 +103,131 @@ public class AppExecutors {
         return mainThread;
     }
 
+    public List<ExecutorPool> getPools() {
+        return pools;
+    }
+
+    /**
+     * Stops the pools from accepting tasks. Tasks already submitted still run.
+     */
+    public void shutdown() {
+        for (ExecutorPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the counters of every priority of every pool.
+     */
+    public List<ExecutorPool.Stats> getStats() {
+        List<ExecutorPool.Stats> stats = new ArrayList<>();
+        for (ExecutorPool pool : pools) {
+            stats.addAll(pool.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Sizes of the pools. Queues are bounded so a runaway producer fails fast instead of
+     * piling up work; a task submitted to a full pool is rejected.
+     */
+    public static final class Config {
+
+        public static final Config DEFAULT = new Config(2, 256, 256, 3, 64);
+
+        public final int readerThreads;
+
+        public final int readerQueueCapacity;
+
+        public final int writerQueueCapacity;
+
+        public final int networkThreads;
+
+        public final int networkQueueCapacity;
+
+        public Config(int readerThreads, int readerQueueCapacity, int writerQueueCapacity,
+                int networkThreads, int networkQueueCapacity) {
+            this.readerThreads = readerThreads;
+            this.readerQueueCapacity = readerQueueCapacity;
+            this.writerQueueCapacity = writerQueueCapacity;
+            this.networkThreads = networkThreads;
+            this.networkQueueCapacity = networkQueueCapacity;
+        }
+    }
+
+    /**
+     * Runs writes on the writer thread and counts the ones that haven't finished yet.
+     */
+    private static class WriteExecutor implements Executor {
+
+        private final Executor mWriter;
+
+        private final AtomicInteger mPending = new AtomicInteger();
+
+        WriteExecutor(Executor writer) {
+            mWriter = writer;
+        }
+
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            mPending.incrementAndGet();
+            try {
+                mWriter.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            command.run();
+                        } finally {
+                            mPending.decrementAndGet();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                mPending.decrementAndGet();
+                throw e;
+            }
+        }
+
+        boolean hasPendingWrites() {
+            return mPending.get() > 0;
+        }
+    }
+
+    /**
+     * Runs reads on the reader pool. While writes are pending, a read is first queued behind them
+     * on the writer thread, which hands it to the reader pool once they are done.
+     */
+    private static class ReadExecutor implements Executor {
+
+        private final Executor mReader;
+
+        private final WriteExecutor mWrites;
+
+        ReadExecutor(Executor reader, WriteExecutor writes) {
+            mReader = reader;
+            mWrites = writes;
+        }
+
+        @Override
+        public void execute(@NonNull final Runnable command) {
+            if (!mWrites.hasPendingWrites()) {
+                mReader.execute(command);
+                return;
+            }
+            mWrites.mWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        mReader.execute(command);
+                    } catch (RejectedExecutionException e) {
+                        // The reader pool is full, don't drop a read that was already accepted.
+                        command.run();
+                    }
+                }
+            });
+        }
+    }
+
     private static class MainThreadExecutor implements Executor {
         private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
@@ -36,6 +36,8 @@ public class UserActivity extends AppCompatActivity implements UserView {
 
     private UserPresenter mPresenter;
 
+    private AppExecutors mAppExecutors;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -52,7 +54,8 @@ public class UserActivity extends AppCompatActivity implements UserView {
 
         // Creating the repository here for simplicity.
         // In an real app, this would be a singleton injected
-        UserRepository userRepository = new UserRepository(new AppExecutors(),
+        mAppExecutors = new AppExecutors();
+        UserRepository userRepository = new UserRepository(mAppExecutors,
                 LocalUserDataSource.getInstance(getApplicationContext()));
 
         mPresenter = new UserPresenter(userRepository, this);
@@ -71,6 +74,13 @@ public class UserActivity extends AppCompatActivity implements UserView {
         mPresenter.stop();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // The pools belong to this screen, let their threads go once pending work is done.
+        mAppExecutors.shutdown();
+    }
+
     @Override
     public void showUserName(String userName) {
         mUserName.setVisibility(View.VISIBLE);
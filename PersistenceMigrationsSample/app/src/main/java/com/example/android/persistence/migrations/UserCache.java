@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded, thread safe cache of users by id. When it is full, the user that was used least
+ * recently makes room for the new one. Looking up and adding users takes the same time however
+ * many users there are.
+ * <p>
+ * Users written to the data source are put with {@link #put(User)}. Users loaded from it are
+ * put with {@link #putIfCurrent(User, int)}, which drops them when a write happened since the
+ * load started, so a load that read a user before it was updated can't replace the update.
+ */
+final class UserCache {
+
+    static final int DEFAULT_CAPACITY = 1000;
+
+    // Guarded by this: an access ordered map is modified by get().
+    private final LinkedHashMap<String, User> mUsers;
+
+    // Guarded by this: bumped by every write, see generation().
+    private int mGeneration;
+
+    UserCache(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mUsers = new LinkedHashMap<String, User>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The key of the user in the cache and the id the {@link UserDataSource} looks it up by.
+     */
+    static String idOf(@NonNull User user) {
+        return String.valueOf(user.getId());
+    }
+
+    @Nullable
+    synchronized User get(String id) {
+        return mUsers.get(id);
+    }
+
+    /**
+     * Puts the cached users with the given ids in {@code found}.
+     *
+     * @return the ids of the users that aren't cached.
+     */
+    synchronized List<String> getAll(Collection<String> ids, Map<String, User> found) {
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            User user = mUsers.get(id);
+            if (user == null) {
+                missing.add(id);
+            } else {
+                found.put(id, user);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * The users found for {@code ids}, in the order of the ids, leaving out those not found.
+     */
+    static List<User> inOrder(List<String> ids, Map<String, User> found) {
+        List<User> users = new ArrayList<>(found.size());
+        for (String id : ids) {
+            User user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * The number of writes so far. Take it before loading users from the data source and pass it
+     * to {@link #putIfCurrent(User, int)} with what was loaded.
+     */
+    synchronized int generation() {
+        return mGeneration;
+    }
+
+    /**
+     * Caches a user that was just written to the data source.
+     */
+    void put(@NonNull User user) {
+        put(idOf(user), user);
+    }
+
+    synchronized void put(String id, @NonNull User user) {
+        mGeneration++;
+        mUsers.put(id, user);
+    }
+
+    /**
+     * Caches a user loaded from the data source, unless there was a write since
+     * {@code generation} was taken.
+     */
+    void putIfCurrent(@NonNull User user, int generation) {
+        putIfCurrent(idOf(user), user, generation);
+    }
+
+    synchronized void putIfCurrent(String id, @NonNull User user, int generation) {
+        if (generation == mGeneration) {
+            mUsers.put(id, user);
+        }
+    }
+
+    /**
+     * Caches users loaded from the data source, unless there was a write since
+     * {@code generation} was taken.
+     */
+    synchronized void putAllIfCurrent(Collection<User> users, int generation) {
+        if (generation != mGeneration) {
+            return;
+        }
+        for (User user : users) {
+            mUsers.put(idOf(user), user);
+        }
+    }
+
+    synchronized void clear() {
+        mGeneration++;
+        mUsers.clear();
+    }
+
+    synchronized int size() {
+        return mUsers.size();
+    }
+}
@@ -16,11 +16,31 @@
 
 package com.example.android.persistence.migrations;
 
+import androidx.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Access point for accessing user data.
+ * <p>
+ * Users are looked up by their id as a String, which is what it becomes in version 4 of the
+ * database. The int ids of the earlier versions are compared as numbers by SQLite, since the
+ * column has an INTEGER affinity.
  */
 public interface UserDataSource {
 
+    /**
+     * Sorts after any user name that starts with the same prefix, so that the names starting
+     * with {@code prefix} are the ones from {@code prefix} up to {@code prefix + NAME_PREFIX_END}.
+     * It is the greatest code point, U+10FFFF.
+     */
+    String NAME_PREFIX_END = "\uDBFF\uDFFF";
+
+    /**
+     * Most ids bound to one query, below SQLite's limit of 999 variables.
+     */
+    int MAX_IDS_PER_QUERY = 500;
+
     /**
      * Gets all the users from the data source.
      *
@@ -28,6 +48,30 @@ public interface UserDataSource {
      */
     User getUser();
 
+    /**
+     * Gets the user with the given id.
+     *
+     * @return the user, or null if there is none with this id.
+     */
+    @Nullable
+    User getUserById(String id);
+
+    /**
+     * Gets the users with the given ids, with as few queries as possible. Ids without a user are
+     * left out.
+     *
+     * @return the users found, in no particular order.
+     */
+    List<User> getUsersByIds(Collection<String> ids);
+
+    /**
+     * Gets the users whose name starts with {@code prefix}, ordered by name. Uses the index on
+     * the name.
+     *
+     * @param limit the most users to return.
+     */
+    List<User> getUsersByNamePrefix(String prefix, int limit);
+
     /**
      * Inserts the user in the data source, or, if this is an existing user, it updates it.
      *
@@ -35,6 +79,14 @@ public interface UserDataSource {
      */
     void insertOrUpdateUser(User user);
 
+    /**
+     * Inserts the users in the data source, or updates the existing ones, in a single
+     * transaction.
+     *
+     * @param users the users to be inserted or updated.
+     */
+    void insertOrUpdateUsers(List<User> users);
+
     /**
      * Deletes all users from the data source.
      */
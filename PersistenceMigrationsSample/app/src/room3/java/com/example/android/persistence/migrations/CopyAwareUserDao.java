@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import java.util.List;
+
+/**
+ * {@link UserDao} that also sees the users a {@link UsersCopy} hasn't copied yet. Once the copy
+ * is done, it is the DAO generated by Room.
+ */
+class CopyAwareUserDao implements UserDao {
+
+    private final UserDao mUserDao;
+
+    private final UsersCopy mUsersCopy;
+
+    CopyAwareUserDao(UserDao userDao, UsersCopy usersCopy) {
+        mUserDao = userDao;
+        mUsersCopy = usersCopy;
+    }
+
+    @Override
+    public User getUser() {
+        if (mUsersCopy.isDone()) {
+            return mUserDao.getUser();
+        }
+        return mUsersCopy.getUser(mUserDao);
+    }
+
+    @Override
+    public User getUserById(String id) {
+        if (mUsersCopy.isDone()) {
+            return mUserDao.getUserById(id);
+        }
+        return mUsersCopy.getUserById(mUserDao, id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(List<String> ids) {
+        if (mUsersCopy.isDone()) {
+            return mUserDao.getUsersByIds(ids);
+        }
+        return mUsersCopy.getUsersByIds(mUserDao, ids);
+    }
+
+    @Override
+    public List<User> getUsersByNameRange(String from, String to, int limit) {
+        if (mUsersCopy.isDone()) {
+            return mUserDao.getUsersByNameRange(from, to, limit);
+        }
+        return mUsersCopy.getUsersByNameRange(mUserDao, from, to, limit);
+    }
+
+    @Override
+    public void insertUser(User user) {
+        // The copy doesn't overwrite users that are already in the users table.
+        mUserDao.insertUser(user);
+    }
+
+    @Override
+    public void insertUsers(List<User> users) {
+        mUserDao.insertUsers(users);
+    }
+
+    @Override
+    public void deleteAllUsers() {
+        if (mUsersCopy.isDone()) {
+            mUserDao.deleteAllUsers();
+        } else {
+            mUsersCopy.deleteAllUsers(mUserDao);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.example.android.persistence.migrations;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 import java.util.Date;
@@ -27,7 +28,7 @@ import java.util.UUID;
 /**
  * Immutable model class for a User and entity in the Room database.
  */
-@Entity(tableName = "users")
+@Entity(tableName = "users", indices = {@Index("username")})
 public class User {
 
     @PrimaryKey
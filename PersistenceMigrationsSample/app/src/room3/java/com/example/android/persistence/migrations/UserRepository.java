@@ -16,23 +16,39 @@
 
 package com.example.android.persistence.migrations;
 
+import androidx.annotation.Nullable;
 import java.lang.ref.WeakReference;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The repository is responsible of handling user data operations.
+ * <p>
+ * Users are cached by id in a bounded {@link UserCache}, shared by the main thread and the disk
+ * threads, so looking up a cached user doesn't touch the disk.
  */
 public class UserRepository {
 
-    private AppExecutors mAppExecutors;
+    private final AppExecutors mAppExecutors;
 
-    private UserDataSource mUserDataSource;
+    private final UserDataSource mUserDataSource;
 
-    private User mCachedUser;
+    private final UserCache mCache;
+
+    // The id of the user shown, or null before one was loaded or saved.
+    @Nullable
+    private volatile String mCurrentUserId;
 
     public UserRepository(AppExecutors appExecutors, UserDataSource userDataSource) {
+        this(appExecutors, userDataSource, UserCache.DEFAULT_CAPACITY);
+    }
+
+    UserRepository(AppExecutors appExecutors, UserDataSource userDataSource, int cacheCapacity) {
         mAppExecutors = appExecutors;
         mUserDataSource = userDataSource;
+        mCache = new UserCache(cacheCapacity);
     }
 
     /**
@@ -44,27 +60,105 @@ public class UserRepository {
     void getUser(final LoadUserCallback callback) {
         final WeakReference<LoadUserCallback> loadUserCallback = new WeakReference<>(callback);
 
-        // request the user on the I/O thread
-        mAppExecutors.diskIO().execute(new Runnable() {
+        // request the user on the I/O thread, after any queued writes
+        mAppExecutors.diskRead().execute(new Runnable() {
             @Override
             public void run() {
+                int generation = mCache.generation();
                 final User user = mUserDataSource.getUser();
-                // notify on the main thread
-                mAppExecutors.mainThread().execute(new Runnable() {
-                    @Override
-                    public void run() {
-                        final LoadUserCallback userCallback = loadUserCallback.get();
-                        if (userCallback == null) {
-                            return;
-                        }
-                        if (user == null) {
-                            userCallback.onDataNotAvailable();
-                        } else {
-                            mCachedUser = user;
-                            userCallback.onUserLoaded(mCachedUser);
-                        }
-                    }
-                });
+                if (user != null) {
+                    mCache.putIfCurrent(user, generation);
+                    mCurrentUserId = user.getId();
+                }
+                notifyUserLoaded(loadUserCallback, user);
+            }
+        });
+    }
+
+    /**
+     * Get the user with the given id from the cache or, if it isn't cached, from the data source.
+     *
+     * @param id       the id of the user
+     * @param callback callback that gets called when the user was retrieved.
+     */
+    void getUserById(final String id, LoadUserCallback callback) {
+        final WeakReference<LoadUserCallback> loadUserCallback = new WeakReference<>(callback);
+
+        User cached = mCache.get(id);
+        if (cached != null) {
+            notifyUserLoaded(loadUserCallback, cached);
+            return;
+        }
+        mAppExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                int generation = mCache.generation();
+                final User user = mUserDataSource.getUserById(id);
+                if (user != null) {
+                    mCache.putIfCurrent(user, generation);
+                }
+                notifyUserLoaded(loadUserCallback, user);
+            }
+        });
+    }
+
+    /**
+     * Get the user with the given id if it is cached, without going to the data source.
+     */
+    @Nullable
+    User getCachedUser(String id) {
+        return mCache.get(id);
+    }
+
+    /**
+     * Get the users with the given ids. The ones that aren't cached are loaded from the data
+     * source together.
+     *
+     * @param ids      the ids of the users
+     * @param callback callback that gets called with the users found, in the order of the ids.
+     */
+    void getUsersByIds(final List<String> ids, LoadUsersCallback callback) {
+        final WeakReference<LoadUsersCallback> loadUsersCallback = new WeakReference<>(callback);
+
+        final Map<String, User> found = new HashMap<>();
+        final List<String> missing = mCache.getAll(ids, found);
+        if (missing.isEmpty()) {
+            notifyUsersLoaded(loadUsersCallback, UserCache.inOrder(ids, found));
+            return;
+        }
+        mAppExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                int generation = mCache.generation();
+                List<User> loaded = mUserDataSource.getUsersByIds(missing);
+                mCache.putAllIfCurrent(loaded, generation);
+                for (User user : loaded) {
+                    found.put(UserCache.idOf(user), user);
+                }
+                notifyUsersLoaded(loadUsersCallback, UserCache.inOrder(ids, found));
+            }
+        });
+    }
+
+    /**
+     * Get the users whose name starts with the prefix from the data source, ordered by name,
+     * and cache them.
+     *
+     * @param prefix   the start of the names
+     * @param limit    the most users to get
+     * @param callback callback that gets called with the users found.
+     */
+    void getUsersByNamePrefix(final String prefix, final int limit,
+            LoadUsersCallback callback) {
+        final WeakReference<LoadUsersCallback> loadUsersCallback = new WeakReference<>(callback);
+
+        mAppExecutors.diskRead().execute(new Runnable() {
+            @Override
+            public void run() {
+                int generation = mCache.generation();
+                List<User> users = mUserDataSource.getUsersByNamePrefix(prefix, limit);
+                mCache.putAllIfCurrent(users, generation);
+                notifyUsersLoaded(loadUsersCallback, users);
             }
         });
     }
@@ -79,16 +173,18 @@ public class UserRepository {
         final WeakReference<UpdateUserCallback> updateUserCallback = new WeakReference<>(callback);
 
         Date date = new Date(System.currentTimeMillis());
-        final User user = mCachedUser == null
+        final String currentUserId = mCurrentUserId;
+        final User user = currentUserId == null
                 ? new User(userName)
-                : new User(mCachedUser.getId(), userName, date);
+                : new User(currentUserId, userName, date);
 
         // update the user on the I/O thread
         mAppExecutors.diskIO().execute(new Runnable() {
             @Override
             public void run() {
                 mUserDataSource.insertOrUpdateUser(user);
-                mCachedUser = user;
+                mCache.put(user);
+                mCurrentUserId = user.getId();
                 // notify on the main thread
                 mAppExecutors.mainThread().execute(new Runnable() {
                     @Override
@@ -102,4 +198,37 @@ public class UserRepository {
             }
         });
     }
+
+    private void notifyUserLoaded(final WeakReference<LoadUserCallback> loadUserCallback,
+            @Nullable final User user) {
+        // notify on the main thread
+        mAppExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                final LoadUserCallback userCallback = loadUserCallback.get();
+                if (userCallback == null) {
+                    return;
+                }
+                if (user == null) {
+                    userCallback.onDataNotAvailable();
+                } else {
+                    userCallback.onUserLoaded(user);
+                }
+            }
+        });
+    }
+
+    private void notifyUsersLoaded(final WeakReference<LoadUsersCallback> loadUsersCallback,
+            final List<User> users) {
+        // notify on the main thread
+        mAppExecutors.mainThread().execute(new Runnable() {
+            @Override
+            public void run() {
+                final LoadUsersCallback usersCallback = loadUsersCallback.get();
+                if (usersCallback != null) {
+                    usersCallback.onUsersLoaded(users);
+                }
+            }
+        });
+    }
 }
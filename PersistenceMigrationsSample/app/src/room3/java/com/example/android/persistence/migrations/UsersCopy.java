@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import android.database.Cursor;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+/**
+ * Copies the users that {@link UsersDatabase#MIGRATION_3_4_DEFERRED} and
+ * {@link UsersDatabase#MIGRATION_1_4_DEFERRED} leave in the old table into the users table, in
+ * chunks, off the thread that opened the database.
+ * <p>
+ * Each chunk is a transaction that also records the last row it copied, so a copy that is
+ * interrupted, e.g. because the process was killed, resumes from there the next time it is
+ * started. Until the copy is done, the users that weren't copied yet are read from the old
+ * table, unless they were written to the users table since. The last chunk drops the old
+ * table.
+ */
+class UsersCopy {
+
+    static final String OLD_TABLE = "users_old";
+
+    static final String PROGRESS_TABLE = "users_copy_progress";
+
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final UsersDatabase mDatabase;
+
+    private final int mChunkSize;
+
+    /**
+     * Set once the old table is known to be gone, so reads stop looking for it.
+     */
+    private volatile boolean mDone;
+
+    UsersCopy(UsersDatabase database, int chunkSize) {
+        mDatabase = database;
+        mChunkSize = chunkSize;
+    }
+
+    /**
+     * Moves the users table of version 3 aside and creates the users table of version 4, with
+     * nothing copied yet. Renaming a table doesn't touch its rows, so this takes the same time
+     * however many users there are.
+     */
+    static void prepare(SupportSQLiteDatabase database) {
+        database.execSQL("ALTER TABLE users RENAME TO " + OLD_TABLE);
+        database.execSQL(
+                "CREATE TABLE users (userid TEXT NOT NULL,"
+                        + "username TEXT,"
+                        + "last_update INTEGER,"
+                        + "PRIMARY KEY(userid))");
+        database.execSQL("CREATE TABLE " + PROGRESS_TABLE + " (last_rowid INTEGER NOT NULL)");
+        database.execSQL("INSERT INTO " + PROGRESS_TABLE + " (last_rowid) VALUES (?)",
+                new Object[]{Long.MIN_VALUE});
+    }
+
+    /**
+     * Copies the remaining chunks on {@code executor}, one task per chunk so that other work
+     * on the executor gets a turn in between.
+     */
+    void start(final Executor executor) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (copyNextChunk()) {
+                    executor.execute(this);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the next chunk of users or, when there are none left, drops the old table.
+     *
+     * @return whether there is more to copy.
+     */
+    boolean copyNextChunk() {
+        if (mDone) {
+            return false;
+        }
+        boolean more = mDatabase.runInTransaction(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (!hasOldTable(db)) {
+                    return false;
+                }
+                long from = checkpoint(db);
+                Cursor cursor = db.query("SELECT MAX(r) FROM (SELECT rowid AS r FROM "
+                        + OLD_TABLE + " WHERE rowid > ? ORDER BY rowid LIMIT ?)",
+                        new Object[]{from, mChunkSize});
+                Long to;
+                try {
+                    to = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : null;
+                } finally {
+                    cursor.close();
+                }
+                if (to == null) {
+                    dropOldTable(db);
+                    return false;
+                }
+                // Users written since the migration are newer than their old rows, keep them.
+                db.execSQL("INSERT OR IGNORE INTO users (userid, username, last_update) "
+                                + "SELECT userid, username, last_update FROM " + OLD_TABLE
+                                + " WHERE rowid > ? AND rowid <= ?",
+                        new Object[]{from, to});
+                db.execSQL("UPDATE " + PROGRESS_TABLE + " SET last_rowid = ?",
+                        new Object[]{to});
+                return true;
+            }
+        });
+        if (!more) {
+            mDone = true;
+        }
+        return more;
+    }
+
+    boolean isDone() {
+        return mDone;
+    }
+
+    /**
+     * Gets the first user from the users table or, if it is empty, from the users of the old
+     * table that weren't copied yet.
+     */
+    @Nullable
+    User getUser(final UserDao userDao) {
+        return mDatabase.runInTransaction(new Callable<User>() {
+            @Override
+            public User call() {
+                User user = userDao.getUser();
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (user != null || !hasOldTable(db)) {
+                    return user;
+                }
+                return first(queryOldTable(db, "", new Object[0], " ORDER BY rowid LIMIT 1"));
+            }
+        });
+    }
+
+    /**
+     * Gets the user with the given id from the users table or, if it wasn't copied yet, from
+     * the old table.
+     */
+    @Nullable
+    User getUserById(final UserDao userDao, final String id) {
+        return mDatabase.runInTransaction(new Callable<User>() {
+            @Override
+            public User call() {
+                User user = userDao.getUserById(id);
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (user != null || !hasOldTable(db)) {
+                    return user;
+                }
+                return first(queryOldTable(db, " AND userid = ?", new Object[]{id}, ""));
+            }
+        });
+    }
+
+    /**
+     * Gets the users with the given ids from the users table, and those that weren't copied
+     * yet from the old table.
+     */
+    List<User> getUsersByIds(final UserDao userDao, final List<String> ids) {
+        return mDatabase.runInTransaction(new Callable<List<User>>() {
+            @Override
+            public List<User> call() {
+                List<User> users = new ArrayList<>(userDao.getUsersByIds(ids));
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (users.size() == ids.size() || !hasOldTable(db)) {
+                    return users;
+                }
+                Set<String> missing = new HashSet<>(ids);
+                for (User user : users) {
+                    missing.remove(user.getId());
+                }
+                StringBuilder in = new StringBuilder(" AND userid IN (");
+                for (int i = 0; i < missing.size(); i++) {
+                    in.append(i == 0 ? "?" : ",?");
+                }
+                in.append(')');
+                users.addAll(queryOldTable(db, in.toString(), missing.toArray(), ""));
+                return users;
+            }
+        });
+    }
+
+    /**
+     * Gets the users whose name is from {@code from} up to {@code to} from both tables, ordered
+     * by name. The old table has no index on the names, so this reads all of its rows that
+     * weren't copied yet.
+     */
+    List<User> getUsersByNameRange(final UserDao userDao, final String from, final String to,
+            final int limit) {
+        return mDatabase.runInTransaction(new Callable<List<User>>() {
+            @Override
+            public List<User> call() {
+                List<User> users = userDao.getUsersByNameRange(from, to, limit);
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (!hasOldTable(db)) {
+                    return users;
+                }
+                List<User> merged = new ArrayList<>(users);
+                merged.addAll(queryOldTable(db, " AND username >= ? AND username < ?",
+                        new Object[]{from, to}, " ORDER BY username LIMIT " + limit));
+                Collections.sort(merged, new Comparator<User>() {
+                    @Override
+                    public int compare(User first, User second) {
+                        return first.getUserName().compareTo(second.getUserName());
+                    }
+                });
+                return merged.size() > limit ? merged.subList(0, limit) : merged;
+            }
+        });
+    }
+
+    /**
+     * Deletes all users. The ones that weren't copied yet go with the old table, so there is
+     * nothing left to copy.
+     */
+    void deleteAllUsers(final UserDao userDao) {
+        mDatabase.runInTransaction(new Runnable() {
+            @Override
+            public void run() {
+                userDao.deleteAllUsers();
+                SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+                if (hasOldTable(db)) {
+                    dropOldTable(db);
+                }
+            }
+        });
+        mDone = true;
+    }
+
+    private static boolean hasOldTable(SupportSQLiteDatabase db) {
+        Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+                new Object[]{OLD_TABLE});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Reads the users of the old table that weren't copied yet, and weren't written to the
+     * users table since the migration either.
+     *
+     * @param where conditions added to those, starting with AND.
+     */
+    private static List<User> queryOldTable(SupportSQLiteDatabase db, String where,
+            Object[] whereArgs, String orderAndLimit) {
+        Object[] args = new Object[whereArgs.length + 1];
+        args[0] = checkpoint(db);
+        System.arraycopy(whereArgs, 0, args, 1, whereArgs.length);
+        Cursor cursor = db.query("SELECT userid, username, last_update FROM " + OLD_TABLE
+                + " WHERE rowid > ? AND CAST(userid AS TEXT) NOT IN (SELECT userid FROM users)"
+                + where + orderAndLimit, args);
+        try {
+            List<User> users = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                users.add(new User(cursor.getString(0), cursor.getString(1),
+                        DateConverter.toDate(cursor.isNull(2) ? null : cursor.getLong(2))));
+            }
+            return users;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Nullable
+    private static User first(List<User> users) {
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    private static long checkpoint(SupportSQLiteDatabase db) {
+        Cursor cursor = db.query("SELECT last_rowid FROM " + PROGRESS_TABLE);
+        try {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void dropOldTable(SupportSQLiteDatabase db) {
+        db.execSQL("DROP TABLE " + OLD_TABLE);
+        db.execSQL("DROP TABLE " + PROGRESS_TABLE);
+    }
+}
@@ -28,13 +28,27 @@ import androidx.annotation.VisibleForTesting;
 /**
  * The Room database that contains the Users table
  */
-@Database(entities = {User.class}, version = 4)
+@Database(entities = {User.class}, version = 5)
 @TypeConverters(DateConverter.class)
 public abstract class UsersDatabase extends RoomDatabase {
 
     private static UsersDatabase INSTANCE;
 
-    public abstract UserDao userDao();
+    private final UsersCopy mUsersCopy = new UsersCopy(this, UsersCopy.DEFAULT_CHUNK_SIZE);
+
+    /**
+     * The DAO generated by Room, which only sees the users table. Use {@link #userDao()}, which
+     * also sees the users that weren't copied yet after a deferred migration.
+     */
+    public abstract UserDao usersTableDao();
+
+    public UserDao userDao() {
+        return new CopyAwareUserDao(usersTableDao(), mUsersCopy);
+    }
+
+    UsersCopy usersCopy() {
+        return mUsersCopy;
+    }
 
     private static final Object sLock = new Object();
 
@@ -128,13 +142,77 @@ public abstract class UsersDatabase extends RoomDatabase {
         }
     };
 
+    /**
+     * Migrate from:
+     * version 3 - using Room where the {@link User#mId} is an int
+     * to
+     * version 4 - using Room where the {@link User#mId} is a String
+     * <p>
+     * Unlike {@link #MIGRATION_3_4}, the users aren't copied here, while the database opens, but
+     * afterwards by a {@link UsersCopy}. Opening the database doesn't take longer the more users
+     * there are.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_3_4_DEFERRED = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            UsersCopy.prepare(database);
+        }
+    };
+
+    /**
+     * Migrate from
+     * version 1 - using the SQLiteDatabase API
+     * to
+     * version 4 - using Room where {@link User} has a new field: {@link User#mDate} and
+     * {@link User#mId} is a String
+     * <p>
+     * Like {@link #MIGRATION_3_4_DEFERRED}, leaves copying the users to a {@link UsersCopy}.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_1_4_DEFERRED = new Migration(1, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            // Adding a column with a constant default doesn't rewrite the rows.
+            database.execSQL("ALTER TABLE users ADD COLUMN last_update INTEGER DEFAULT 0");
+            UsersCopy.prepare(database);
+        }
+    };
+
+    /**
+     * Migrate from:
+     * version 4 - using Room where the {@link User#mId} is a String
+     * to
+     * version 5 - using Room where the users table has an index on the user name, for
+     * {@link UserDao#getUsersByNameRange}
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL(
+                    "CREATE INDEX IF NOT EXISTS index_users_username ON users (username)");
+        }
+    };
+
+    /**
+     * The migrations the app opens the database with. The users are copied after a deferred
+     * migration, see {@link #getInstance}.
+     */
+    @VisibleForTesting
+    static final Migration[] MIGRATIONS = {MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4_DEFERRED,
+            MIGRATION_1_4_DEFERRED, MIGRATION_4_5};
+
     public static UsersDatabase getInstance(Context context) {
         synchronized (sLock) {
             if (INSTANCE == null) {
                 INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                         UsersDatabase.class, "Sample.db")
-                        .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_1_4)
+                        .addMigrations(MIGRATIONS)
                         .build();
+                // Copies the users left behind by a deferred migration, if any, picking up
+                // where an earlier run stopped. Opens the database, off the main thread.
+                INSTANCE.mUsersCopy.start(INSTANCE.getQueryExecutor());
             }
             return INSTANCE;
         }
@@ -18,7 +18,11 @@ package com.example.android.persistence.migrations;
 
 import android.content.Context;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Concrete implementation of the {@link LocalUserDataSource} that works with Room.
@@ -51,11 +55,38 @@ public class LocalUserDataSource implements UserDataSource {
         return mUserDao.getUser();
     }
 
+    @Nullable
+    @Override
+    public User getUserById(String id) {
+        return mUserDao.getUserById(id);
+    }
+
+    @Override
+    public List<User> getUsersByIds(Collection<String> ids) {
+        List<String> allIds = new ArrayList<>(ids);
+        List<User> users = new ArrayList<>(allIds.size());
+        for (int start = 0; start < allIds.size(); start += MAX_IDS_PER_QUERY) {
+            users.addAll(mUserDao.getUsersByIds(allIds.subList(start,
+                    Math.min(allIds.size(), start + MAX_IDS_PER_QUERY))));
+        }
+        return users;
+    }
+
+    @Override
+    public List<User> getUsersByNamePrefix(String prefix, int limit) {
+        return mUserDao.getUsersByNameRange(prefix, prefix + NAME_PREFIX_END, limit);
+    }
+
     @Override
     public void insertOrUpdateUser(User user) {
         mUserDao.insertUser(user);
     }
 
+    @Override
+    public void insertOrUpdateUsers(List<User> users) {
+        mUserDao.insertUsers(users);
+    }
+
     @Override
     public void deleteAllUsers() {
         mUserDao.deleteAllUsers();
@@ -20,6 +20,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import java.util.List;
 
 /**
  * Data Access Object for the users table.
@@ -36,6 +37,29 @@ public interface UserDao {
     @Query("SELECT * FROM Users LIMIT 1")
     User getUser();
 
+    /**
+     * Get the user with the given id.
+     *
+     * @return the user, or null if there is none with this id.
+     */
+    @Query("SELECT * FROM Users WHERE userid = :id")
+    User getUserById(String id);
+
+    /**
+     * Get the users with the given ids. No more than {@link UserDataSource#MAX_IDS_PER_QUERY}
+     * ids should be passed at once.
+     */
+    @Query("SELECT * FROM Users WHERE userid IN (:ids)")
+    List<User> getUsersByIds(List<String> ids);
+
+    /**
+     * Get the users whose name is from {@code from} up to, but not including, {@code to},
+     * ordered by name. From version 5 on, the users table has an index on the name for this.
+     */
+    @Query("SELECT * FROM Users WHERE username >= :from AND username < :to ORDER BY username"
+            + " LIMIT :limit")
+    List<User> getUsersByNameRange(String from, String to, int limit);
+
     /**
      * Insert a user in the database. If the user already exists, replace it.
      *
@@ -44,6 +68,15 @@ public interface UserDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertUser(User user);
 
+    /**
+     * Insert users in the database, replacing the ones that already exist, in a single
+     * transaction.
+     *
+     * @param users the users to be inserted.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertUsers(List<User> users);
+
     /**
      * Delete all users.
      */
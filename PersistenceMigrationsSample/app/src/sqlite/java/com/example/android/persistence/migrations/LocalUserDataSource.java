@@ -19,21 +19,43 @@ package com.example.android.persistence.migrations;
 import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.COLUMN_NAME_ENTRY_ID;
 import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.COLUMN_NAME_USERNAME;
 import static com.example.android.persistence.migrations.UserPersistenceContract.UserEntry.TABLE_NAME;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Concrete implementation of the UserDataSource, working directly with SQLite APIs.
+ * <p>
+ * The database stays open for as long as the data source is used, so each operation doesn't
+ * reopen the file and parse the schema again, and the statement that inserts users is compiled
+ * once. Call {@link #close()} to release them. Every operation synchronizes on the data source,
+ * so closing it can't close the database under a query that is still running.
  */
 public class LocalUserDataSource implements UserDataSource {
 
+    private static final String SQL_INSERT_OR_REPLACE =
+            "INSERT OR REPLACE INTO " + TABLE_NAME + " ("
+                    + COLUMN_NAME_ENTRY_ID + ", " + COLUMN_NAME_USERNAME + ") VALUES (?, ?)";
+
+    private static final String[] PROJECTION = {
+            COLUMN_NAME_ENTRY_ID,
+            COLUMN_NAME_USERNAME
+    };
+
     private static LocalUserDataSource INSTANCE;
 
     private UsersDbHelper mDbHelper;
 
+    // Guarded by this: a statement can't be bound from two threads at once.
+    private SQLiteStatement mInsertStatement;
+
     // Prevent direct instantiation.
     private LocalUserDataSource(@NonNull Context context) {
         mDbHelper = new UsersDbHelper(context);
@@ -47,7 +69,7 @@ public class LocalUserDataSource implements UserDataSource {
     }
 
     @Override
-    public User getUser() {
+    public synchronized User getUser() {
         User user = null;
 
         SQLiteDatabase db = mDbHelper.getReadableDatabase();
@@ -72,31 +94,120 @@ public class LocalUserDataSource implements UserDataSource {
         if (c != null) {
             c.close();
         }
-        db.close();
 
         return user;
     }
 
+    @Nullable
     @Override
-    public void insertOrUpdateUser(User user) {
-        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+    public synchronized User getUserById(String id) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        Cursor c = db.query(TABLE_NAME, PROJECTION, COLUMN_NAME_ENTRY_ID + " = ?",
+                new String[]{id}, null, null, null);
+        List<User> users = readUsers(c);
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    @Override
+    public synchronized List<User> getUsersByIds(Collection<String> ids) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        String[] allIds = ids.toArray(new String[0]);
+        List<User> users = new ArrayList<>(allIds.length);
+        for (int start = 0; start < allIds.length; start += MAX_IDS_PER_QUERY) {
+            String[] chunk = Arrays.copyOfRange(allIds, start,
+                    Math.min(allIds.length, start + MAX_IDS_PER_QUERY));
+            Cursor c = db.query(TABLE_NAME, PROJECTION,
+                    COLUMN_NAME_ENTRY_ID + " IN (" + placeholders(chunk.length) + ")", chunk,
+                    null, null, null);
+            users.addAll(readUsers(c));
+        }
+        return users;
+    }
 
-        ContentValues values = new ContentValues();
-        values.put(COLUMN_NAME_ENTRY_ID, user.getId());
-        values.put(COLUMN_NAME_USERNAME, user.getUserName());
+    @Override
+    public synchronized List<User> getUsersByNamePrefix(String prefix, int limit) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        // A range, like the Room versions use, rather than LIKE, which ignores case.
+        Cursor c = db.query(TABLE_NAME, PROJECTION,
+                COLUMN_NAME_USERNAME + " >= ? AND " + COLUMN_NAME_USERNAME + " < ?",
+                new String[]{prefix, prefix + NAME_PREFIX_END}, null, null,
+                COLUMN_NAME_USERNAME, String.valueOf(limit));
+        return readUsers(c);
+    }
 
-        db.insertWithOnConflict(TABLE_NAME, null, values,
-                SQLiteDatabase.CONFLICT_REPLACE);
+    @Override
+    public synchronized void insertOrUpdateUser(User user) {
+        bindAndInsert(insertStatement(), user);
+    }
 
-        db.close();
+    @Override
+    public synchronized void insertOrUpdateUsers(List<User> users) {
+        SQLiteStatement statement = insertStatement();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (User user : users) {
+                bindAndInsert(statement, user);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
 
     @Override
-    public void deleteAllUsers() {
+    public synchronized void deleteAllUsers() {
         SQLiteDatabase db = mDbHelper.getWritableDatabase();
 
         db.delete(TABLE_NAME, null, null);
+    }
+
+    /**
+     * Closes the database. It is opened again by the next operation.
+     */
+    public synchronized void close() {
+        if (mInsertStatement != null) {
+            mInsertStatement.close();
+            mInsertStatement = null;
+        }
+        mDbHelper.close();
+    }
+
+    private static List<User> readUsers(Cursor c) {
+        List<User> users = new ArrayList<>();
+        try {
+            while (c.moveToNext()) {
+                users.add(new User(c.getInt(0), c.getString(1)));
+            }
+        } finally {
+            c.close();
+        }
+        return users;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ",?");
+        }
+        return builder.toString();
+    }
 
-        db.close();
+    private SQLiteStatement insertStatement() {
+        if (mInsertStatement == null) {
+            mInsertStatement = mDbHelper.getWritableDatabase().compileStatement(
+                    SQL_INSERT_OR_REPLACE);
+        }
+        return mInsertStatement;
+    }
+
+    private static void bindAndInsert(SQLiteStatement statement, User user) {
+        statement.bindLong(1, user.getId());
+        if (user.getUserName() == null) {
+            statement.bindNull(2);
+        } else {
+            statement.bindString(2, user.getUserName());
+        }
+        statement.executeInsert();
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the ExecutorPool.
+ */
+public class ExecutorPoolTest {
+
+    private ExecutorPool mPool;
+
+    private Executor mUserVisible;
+
+    private Executor mBackground;
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    @Before
+    public void setUp() {
+        mPool = new ExecutorPool("test", 1, 2);
+        mUserVisible = mPool.executor(ExecutorPool.Priority.USER_VISIBLE);
+        mBackground = mPool.executor(ExecutorPool.Priority.BACKGROUND);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mPool.shutdown();
+    }
+
+    @Test
+    public void userVisibleTasksRunBeforeQueuedBackgroundTasks() throws InterruptedException {
+        final List<String> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(3);
+        blockPool();
+
+        // Given background tasks queued before a user visible one
+        mBackground.execute(() -> record(order, "write", done));
+        mUserVisible.execute(() -> record(order, "read", done));
+
+        // When the pool gets to them
+        mRelease.countDown();
+        mBackground.execute(() -> record(order, "write2", done));
+
+        // The user visible task runs first
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertThat(order, contains("read", "write", "write2"));
+    }
+
+    @Test
+    public void fullQueueRejectsTasks() {
+        // Given a busy pool with a full queue
+        blockPool();
+        mBackground.execute(() -> { });
+        mBackground.execute(() -> { });
+
+        // When another task is submitted
+        try {
+            mUserVisible.execute(() -> { });
+            fail("Expected the task to be rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        // It is counted as rejected
+        assertThat(mPool.getQueueDepth(), is(2));
+        assertThat(stats(ExecutorPool.Priority.USER_VISIBLE).rejected, is(1L));
+        assertThat(stats(ExecutorPool.Priority.BACKGROUND).queued, is(2));
+    }
+
+    @Test
+    public void statsCountWaitAndRunTime() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        blockPool();
+
+        // Given a task that waits for the pool and then runs for a while
+        mBackground.execute(() -> {
+            sleep(20);
+            done.countDown();
+        });
+        sleep(20);
+        mRelease.countDown();
+
+        // When it completed
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitForCompletion(ExecutorPool.Priority.BACKGROUND, 1);
+
+        // Its wait and run time are counted
+        ExecutorPool.Stats stats = stats(ExecutorPool.Priority.BACKGROUND);
+        assertThat(stats.submitted, is(1L));
+        assertThat(stats.queued, is(0));
+        assertThat(stats.maxQueued, is(1));
+        assertThat(stats.maxWaitNanos, greaterThan(TimeUnit.MILLISECONDS.toNanos(10)));
+        assertThat(stats.maxRunNanos, greaterThan(TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+
+    /**
+     * Occupies the only thread of the pool until {@link #mRelease} is counted down.
+     */
+    private void blockPool() {
+        final CountDownLatch started = new CountDownLatch(1);
+        mUserVisible.execute(() -> {
+            started.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private void waitForCompletion(ExecutorPool.Priority priority, long completed)
+            throws InterruptedException {
+        // The counters are updated right after the task returns.
+        for (int i = 0; i < 100 && stats(priority).completed < completed; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private ExecutorPool.Stats stats(ExecutorPool.Priority priority) {
+        return mPool.getStats().get(priority.ordinal());
+    }
+
+    private static void record(List<String> order, String name, CountDownLatch done) {
+        order.add(name);
+        done.countDown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the UserCache.
+ */
+public class UserCacheTest {
+
+    private final User mFirst = mock(User.class);
+
+    private final User mSecond = mock(User.class);
+
+    private final User mThird = mock(User.class);
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        UserCache cache = new UserCache(2);
+        cache.put("1", mFirst);
+        cache.put("2", mSecond);
+
+        // Using the first user makes the second one the least recently used
+        cache.get("1");
+        cache.put("3", mThird);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.get("1"), sameInstance(mFirst));
+        assertThat(cache.get("2"), nullValue());
+        assertThat(cache.get("3"), sameInstance(mThird));
+    }
+
+    @Test
+    public void getAllReturnsMissingIds() {
+        UserCache cache = new UserCache(10);
+        cache.put("1", mFirst);
+        cache.put("3", mThird);
+        Map<String, User> found = new HashMap<>();
+
+        List<String> ids = Arrays.asList("3", "2", "1");
+        List<String> missing = cache.getAll(ids, found);
+
+        assertThat(missing, contains("2"));
+        assertThat(UserCache.inOrder(ids, found), contains(mThird, mFirst));
+    }
+
+    @Test
+    public void loadStartedBeforeWriteDoesNotReplaceIt() {
+        UserCache cache = new UserCache(10);
+        int generation = cache.generation();
+
+        // The write finishes while the load is still reading the old user
+        cache.put("1", mSecond);
+        cache.putIfCurrent("1", mFirst, generation);
+
+        assertThat(cache.get("1"), sameInstance(mSecond));
+    }
+
+    @Test
+    public void loadWithoutWriteIsCached() {
+        UserCache cache = new UserCache(10);
+        int generation = cache.generation();
+
+        cache.putIfCurrent("1", mFirst, generation);
+
+        assertThat(cache.get("1"), sameInstance(mFirst));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new UserCache(0);
+    }
+
+    @Test
+    public void lookupsStayFastWithManyUsers() {
+        int count = 100_000;
+        UserCache cache = new UserCache(count);
+        for (int i = 0; i < count; i++) {
+            cache.put(String.valueOf(i), mFirst);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            cache.get(String.valueOf(i));
+        }
+        long perLookup = (System.nanoTime() - start) / count;
+
+        // Far below a millisecond, even on a slow machine
+        assertThat(perLookup, lessThan(TimeUnit.MILLISECONDS.toNanos(1)));
+    }
+}
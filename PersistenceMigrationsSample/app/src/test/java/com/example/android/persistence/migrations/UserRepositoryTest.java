@@ -17,7 +17,9 @@
 package com.example.android.persistence.migrations;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyCollection;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +30,11 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Unit tests for the UserRepository.
  */
@@ -40,9 +47,14 @@ public class UserRepositoryTest {
 
     private static final User USER = new User("username");
 
+    private static final String USER_ID = UserCache.idOf(USER);
+
     @Captor
     private ArgumentCaptor<User> mUserArgumentCaptor;
 
+    @Captor
+    private ArgumentCaptor<Collection<String>> mIdsArgumentCaptor;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -98,4 +110,69 @@ public class UserRepositoryTest {
         verify(callback).onUserUpdated(user);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getUserByIdIsCached() {
+        LoadUserCallback callback = mock(LoadUserCallback.class);
+        when(mUserDataSource.getUserById(USER_ID)).thenReturn(USER);
+
+        // When requesting the same user twice
+        mUserRepository.getUserById(USER_ID, callback);
+        mUserRepository.getUserById(USER_ID, callback);
+
+        // The user is requested from the data source once
+        verify(mUserDataSource).getUserById(USER_ID);
+        verify(callback, times(2)).onUserLoaded(USER);
+        assertEquals(USER, mUserRepository.getCachedUser(USER_ID));
+    }
+
+    @Test
+    public void getUserByIdWithNoUserInDataSource() {
+        LoadUserCallback callback = mock(LoadUserCallback.class);
+
+        mUserRepository.getUserById("unknown", callback);
+
+        verify(callback).onDataNotAvailable();
+    }
+
+    @Test
+    public void getUsersByIdsLoadsMissingUsersTogether() {
+        LoadUsersCallback callback = mock(LoadUsersCallback.class);
+        // Given a cached user
+        when(mUserDataSource.getUserById(USER_ID)).thenReturn(USER);
+        mUserRepository.getUserById(USER_ID, mock(LoadUserCallback.class));
+        when(mUserDataSource.getUsersByIds(anyCollection()))
+                .thenReturn(Collections.<User>emptyList());
+
+        // When requesting it with users that aren't cached
+        mUserRepository.getUsersByIds(Arrays.asList("unknown", USER_ID, "other"), callback);
+
+        // Only the others are requested from the data source, in one batch
+        verify(mUserDataSource).getUsersByIds(mIdsArgumentCaptor.capture());
+        assertEquals(Arrays.asList("unknown", "other"), mIdsArgumentCaptor.getValue());
+        verify(callback).onUsersLoaded(Collections.singletonList(USER));
+    }
+
+    @Test
+    public void getUsersByNamePrefixCachesUsers() {
+        LoadUsersCallback callback = mock(LoadUsersCallback.class);
+        List<User> users = Collections.singletonList(USER);
+        when(mUserDataSource.getUsersByNamePrefix("user", 10)).thenReturn(users);
+
+        mUserRepository.getUsersByNamePrefix("user", 10, callback);
+
+        verify(callback).onUsersLoaded(users);
+        assertEquals(USER, mUserRepository.getCachedUser(USER_ID));
+    }
+
+    @Test
+    public void updateUserNameKeepsLoadedUserId() {
+        when(mUserDataSource.getUser()).thenReturn(USER);
+        mUserRepository.getUser(mock(LoadUserCallback.class));
+
+        mUserRepository.updateUserName("name", mock(UpdateUserCallback.class));
+
+        verify(mUserDataSource).insertOrUpdateUser(mUserArgumentCaptor.capture());
+        assertEquals(USER_ID, UserCache.idOf(mUserArgumentCaptor.getValue()));
+        assertEquals("name", mUserRepository.getCachedUser(USER_ID).getUserName());
+    }
+}